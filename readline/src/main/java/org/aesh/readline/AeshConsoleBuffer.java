@@ -75,6 +75,7 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
     @Override
     public void setSize(Size size) {
         this.size = size;
+        buffer.invalidatePrintedLine();
     }
 
     @Override
@@ -132,11 +133,13 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
 
     @Override
     public void writeOut(String out) {
+        buffer.invalidatePrintedLine();
         connection.write(out);
     }
 
     @Override
     public void writeOut(int[] out) {
+        buffer.invalidatePrintedLine();
         connection.stdoutHandler().accept(out);
     }
 
@@ -55,6 +55,11 @@ public final class Buffer {
     private int[] multiLineBuffer = new int[0];
     private boolean isPromptDisplayed = false;
     private boolean deletingBackward = true;
+    //terminal width and prompt length used when the buffer was last printed.
+    //if they are unchanged the terminal is showing the current line and we only
+    //need to print what has changed
+    private int printedWidth = -1;
+    private int printedPromptLength = -1;
 
     private final CursorLocator locator;
 
@@ -132,6 +137,14 @@ public final class Buffer {
         this.isPromptDisplayed = isPromptDisplayed;
     }
 
+    /**
+     * Must be called if something else than this Buffer have written to the terminal,
+     * the next redraw will then print the entire line.
+     */
+    public void invalidatePrintedLine() {
+        printedWidth = -1;
+    }
+
     public void forceSetDeltaChangedAtEndOfBuffer(boolean delta) {
         deltaChangedAtEndOfBuffer = delta;
     }
@@ -315,7 +328,7 @@ public final class Buffer {
             return;
         }
 
-        out.accept( syncCursor(promptLength()+cursor, promptLength()+cursor+move, termWidth));
+        out.accept( syncCursor(column(cursor, termWidth), column(cursor+move, termWidth), termWidth));
 
         cursor = cursor + move;
 
@@ -545,10 +558,21 @@ public final class Buffer {
     }
 
     private void print(Consumer<int[]> out, int width, boolean viMode) {
+        print(out, width, viMode, -1, -1);
+    }
+
+    /**
+     * @param oldCursorColumn the cursor column on the terminal before the change,
+     * or -1 if the terminal is not showing the current line
+     * @param oldEndColumn the end column of the line on the terminal before the change,
+     * or -1 if the terminal is not showing the current line
+     */
+    private void print(Consumer<int[]> out, int width, boolean viMode,
+                       int oldCursorColumn, int oldEndColumn) {
         if(delta >= 0)
             printInsertedData(out, width);
         else {
-            printDeletedData(out, width, viMode);
+            printDeletedData(out, width, viMode, oldCursorColumn, oldEndColumn);
         }
         delta = 0;
     }
@@ -601,36 +625,49 @@ public final class Buffer {
             }
         }
 
+        int endColumn = column(size, width);
         //pad if we are at the end of the terminal
-        if((size + promptLength()) % width == 0) {
+        if(endColumn % width == 0) {
             builder.append(new int[]{32, 13});
         }
         //make sure we sync the cursor back
         if(!deltaChangedAtEndOfBuffer) {
-            if((size + promptLength()) % width == 0 &&
+            if(endColumn % width == 0 &&
                        (Config.isOSPOSIXCompatible() || (Config.isWindows() && WinSysTerminal.isVTSupported()))) {
-                builder.append(syncCursorWhenBufferIsAtTerminalEdge(size + promptLength(), cursor + promptLength(), width));
+                builder.append(syncCursorWhenBufferIsAtTerminalEdge(endColumn, column(cursor, width), width));
             }
             else
-                builder.append(syncCursor(size + promptLength(), cursor + promptLength(), width));
+                builder.append(syncCursor(endColumn, column(cursor, width), width));
         }
 
         out.accept(builder.toArray());
         delta = 0;
         deltaChangedAtEndOfBuffer = true;
+        setPrinted(width);
     }
 
-    private void printDeletedData(Consumer<int[]> out, int width, boolean viMode) {
+    private void printDeletedData(Consumer<int[]> out, int width, boolean viMode,
+                                  int oldCursorColumn, int oldEndColumn) {
         //if we're masking and the mask is no output we just return
         if(width == 0 || (isMasking() && prompt.getMask() == 0))
             return;
+        boolean quickDelete = deltaChangedAtEndOfBuffer &&
+                ((size+promptLength()+1) < width ||
+                        (deletingBackward && (size+promptLength()+1) % width > Math.abs(delta)));
+        //only print the changed part if we can't do a quick delete at the end of the line,
+        //the quick delete only works when every deleted char have width 1
+        if(oldEndColumn >= 0 &&
+                (!quickDelete || oldEndColumn - promptLength() != size + Math.abs(delta))) {
+            printChanges(out, cursor, oldCursorColumn, oldEndColumn, width, viMode);
+            return;
+        }
         IntArrayBuilder builder = new IntArrayBuilder();
          if(size+promptLength()+Math.abs(delta) >= width) {
             if(deletingBackward) {
                 //lets optimize deletes at the end
                 if(deltaChangedAtEndOfBuffer &&
                         ((size+promptLength()+1) % width > Math.abs(delta))) {
-                    quickDeleteAtEnd(out, viMode);
+                    quickDeleteAtEnd(out, width, viMode);
                     return;
                 }
                 else {
@@ -646,12 +683,12 @@ public final class Buffer {
         }
 
         if((size+promptLength()+1) < width && deltaChangedAtEndOfBuffer)
-             quickDeleteAtEnd(out, viMode);
+             quickDeleteAtEnd(out, width, viMode);
         else
             moveCursorToStartAndPrint(out, builder, width, false, viMode);
     }
 
-    private void quickDeleteAtEnd(Consumer<int[]> out, boolean viMode) {
+    private void quickDeleteAtEnd(Consumer<int[]> out, int width, boolean viMode) {
         //move cursor delta then clear the rest of the line
         IntArrayBuilder builder = new IntArrayBuilder();
         //only have to move when deleting backwards
@@ -665,6 +702,7 @@ public final class Buffer {
         }
 
         out.accept(builder.toArray());
+        setPrinted(width);
     }
 
     /**
@@ -685,6 +723,11 @@ public final class Buffer {
         if(line == null || size == 0 && line.length == 0)
             return;
 
+        if(canPrintChanges(width)) {
+            replaceChanges(out, line, width);
+            return;
+        }
+
         int tmpDelta = line.length - size;
         int oldSize = size+promptLength();
         int oldCursor = cursor + promptLength();
@@ -787,26 +830,138 @@ public final class Buffer {
                 builder.append(getLine());
         }
 
+        int endColumn = column(size, width);
         //pad if we are at the end of the terminal
-        if((size + promptLength()) % width == 0 && cursor == size) {
+        if(endColumn % width == 0 && cursor == size) {
             builder.append(new int[]{32, 13});
         }
         //make sure we sync the cursor back
         if(!deltaChangedAtEndOfBuffer) {
-            if((size + promptLength()) % width == 0 &&
+            if(endColumn % width == 0 &&
                     (Config.isOSPOSIXCompatible() || (Config.isWindows() && WinSysTerminal.isVTSupported())))
-                builder.append(syncCursor(size+promptLength()-1, cursor+promptLength(), width, true));
+                builder.append(syncCursor(endColumn-1, column(cursor, width), width, true));
             else
-                builder.append(syncCursor(size+promptLength(), cursor+promptLength(), width));
+                builder.append(syncCursor(endColumn, column(cursor, width), width));
          }
         //end of buffer and vi mode
         else if(viMode && cursor == size) {
-            builder.append(moveNumberOfColumns(1, 'D'));
             cursor--;
+            builder.append(moveNumberOfColumns(Math.max(WcWidth.width(line[cursor]), 1), 'D'));
         }
 
         out.accept(builder.toArray());
         isPromptDisplayed = true;
+        setPrinted(width);
+    }
+
+    private void setPrinted(int width) {
+        printedWidth = width;
+        printedPromptLength = promptLength();
+    }
+
+    /**
+     * @param width terminal width
+     * @return true if the terminal is showing the current line, so only the changes needs to be printed
+     */
+    private boolean canPrintChanges(int width) {
+        return isPromptDisplayed && !isMasking() && width > 0 &&
+                printedWidth == width && printedPromptLength == promptLength();
+    }
+
+    /**
+     * Replace the line by only printing what differs from the line on the terminal
+     */
+    private void replaceChanges(Consumer<int[]> out, int[] newLine, int width) {
+        int oldCursorColumn = column(cursor, width);
+        int oldEndColumn = column(size, width);
+        int from = 0;
+        while(from < size && from < newLine.length && line[from] == newLine[from])
+            from++;
+        if(newLine.length > line.length)
+            line = Arrays.copyOf(line, newLine.length + 1);
+        System.arraycopy(newLine, from, line, from, newLine.length - from);
+        if(newLine.length < size)
+            Arrays.fill(line, newLine.length, size, 0);
+        size = newLine.length;
+        cursor = size;
+        delta = 0;
+        deltaChangedAtEndOfBuffer = true;
+        printChanges(out, from, oldCursorColumn, oldEndColumn, width, false);
+    }
+
+    /**
+     * Update the terminal when the line have changed from the given index.
+     * Only the cursor movements and the changed part of the line is printed.
+     *
+     * @param out output
+     * @param from index of the first changed char
+     * @param oldCursorColumn cursor column on the terminal
+     * @param oldEndColumn end column of the line on the terminal
+     * @param width terminal width
+     * @param viMode if the cursor should not be placed after the last char
+     */
+    private void printChanges(Consumer<int[]> out, int from, int oldCursorColumn, int oldEndColumn,
+                              int width, boolean viMode) {
+        IntArrayBuilder builder = new IntArrayBuilder();
+        int fromColumn = column(from, width);
+        if(oldCursorColumn != fromColumn)
+            builder.append(syncCursor(oldCursorColumn, fromColumn, width));
+
+        int endColumn = fromColumn;
+        for(int i = from; i < size; i++)
+            endColumn = nextColumn(endColumn, line[i], width);
+        if(from < size) {
+            builder.append(Arrays.copyOfRange(line, from, size));
+            //pad if we are at the end of the terminal
+            if(endColumn % width == 0)
+                builder.append(new int[]{32, 13});
+        }
+
+        if(oldEndColumn > endColumn) {
+            if((oldEndColumn - 1) / width == endColumn / width)
+                builder.append(ANSI.ERASE_LINE_FROM_CURSOR);
+            else
+                builder.append(ANSI.ERASE_SCREEN_FROM_CURSOR);
+        }
+
+        int cursorColumn = fromColumn;
+        for(int i = from; i < cursor; i++)
+            cursorColumn = nextColumn(cursorColumn, line[i], width);
+        if(viMode && cursor == size && cursor > 0) {
+            cursor--;
+            cursorColumn -= Math.max(WcWidth.width(line[cursor]), 1);
+        }
+        if(cursorColumn != endColumn)
+            builder.append(syncCursor(endColumn, cursorColumn, width));
+
+        out.accept(builder.toArray());
+        delta = 0;
+        deltaChangedAtEndOfBuffer = true;
+        setPrinted(width);
+    }
+
+    /**
+     * @return the terminal column, including the prompt, where the char at the given
+     * index is printed. Wide chars count as two columns.
+     */
+    private int column(int index, int width) {
+        int column = promptLength();
+        if(isMasking() || width <= 0)
+            return column + index;
+        for(int i = 0; i < index; i++)
+            column = nextColumn(column, line[i], width);
+        return column;
+    }
+
+    /**
+     * @return the column after the given char is printed at the given column,
+     * a wide char that do not fit at the end of a line is moved to the next line
+     */
+    private static int nextColumn(int column, int c, int width) {
+        int charWidth = Math.max(WcWidth.width(c), 1);
+        if(charWidth > 1 && (column % width) + charWidth > width)
+            column += width - (column % width);
+        return column + charWidth;
     }
 
     public int[] multiLine() {
@@ -830,6 +985,10 @@ public final class Buffer {
     }
 
     public void delete(Consumer<int[]> out, int delta, int width, boolean viMode) {
+        //need to check before the line is changed
+        boolean canPrintChanges = canPrintChanges(width);
+        int oldCursorColumn = canPrintChanges ? column(cursor, width) : -1;
+        int oldEndColumn = canPrintChanges ? column(size, width) : -1;
         if (delta > 0) {
             delta = Math.min(delta, size - cursor);
             if(delta > 0) {
@@ -859,7 +1018,7 @@ public final class Buffer {
             deltaChangedAtEndOfBuffer = (cursor == size);
 
             //finally print our changes
-            print(out, width, viMode);
+            print(out, width, viMode, oldCursorColumn, oldEndColumn);
         }
     }
 
@@ -70,6 +70,17 @@ public interface InputProcessor {
 
     void finish(String out);
 
+    /**
+     * Run a task that update the buffer from another thread, eg when
+     * an asynchronous completion is done.
+     * The task is run when no input is being processed.
+     *
+     * @param task task
+     */
+    default void execute(Runnable task) {
+        task.run();
+    }
+
     /**
      * @return current flags
      */
@@ -19,12 +19,14 @@
  */
 package org.aesh.readline;
 
+import java.util.Arrays;
 import java.util.EnumMap;
 
 import org.aesh.readline.cursor.CursorListener;
 import org.aesh.readline.action.Action;
 import org.aesh.readline.action.ActionDecoder;
 import org.aesh.readline.action.KeyAction;
+import org.aesh.readline.action.PasteKeyAction;
 import org.aesh.readline.completion.Completion;
 import org.aesh.readline.completion.CompletionHandler;
 import org.aesh.readline.completion.SimpleCompletionHandler;
@@ -36,6 +38,7 @@ import org.aesh.readline.terminal.Key;
 import org.aesh.terminal.Attributes;
 import org.aesh.terminal.utils.Config;
 import org.aesh.readline.util.Parser;
+import org.aesh.readline.util.WcWidth;
 import org.aesh.terminal.Connection;
 import org.aesh.readline.util.LoggerUtil;
 
@@ -58,6 +61,10 @@ public class Readline {
 
     private static final Logger LOGGER = LoggerUtil.getLogger(Readline.class.getName());
 
+    private static final int[] BRACKETED_PASTE_ON = {27, '[', '?', '2', '0', '0', '4', 'h'};
+    private static final int[] BRACKETED_PASTE_OFF = {27, '[', '?', '2', '0', '0', '4', 'l'};
+    private static final int TAB_WIDTH = 8;
+
     private final ActionDecoder decoder;
     private AeshInputProcessor inputProcessor;
 
@@ -209,6 +216,9 @@ public class Readline {
 
         @Override
         public void finish(String s) {
+            completionHandler.cancel();
+            if(flags.containsKey(ReadlineFlag.BRACKETED_PASTE))
+                conn.stdoutHandler().accept(BRACKETED_PASTE_OFF);
             conn.setStdinHandler(prevReadHandler);
             conn.setSizeHandler(prevSizeHandler);
             conn.setSignalHandler(prevSignalHandler);
@@ -227,6 +237,12 @@ public class Readline {
          * @param event event
          */
         private void parse(KeyAction event) {
+            //any new input cancel completions that are still running
+            completionHandler.cancel();
+            if(event instanceof PasteKeyAction) {
+                paste((PasteKeyAction) event);
+                return;
+            }
             Action action = editMode.parse(event);
             if (action != null) {
                 synchronized (Readline.this) {
@@ -248,8 +264,79 @@ public class Readline {
                 }
             }
             else {
-                if(Key.isPrintable(event.buffer()) && notInCommandNode())
-                    this.buffer().writeChar((char) event.buffer().array()[0]);
+                if(Key.isPrintable(event.buffer()) && notInCommandNode()) {
+                    int codePoint = event.getCodePointAt(0);
+                    //the following unmapped printable input would end up here too, insert it in one go
+                    int[] printables = WcWidth.width(codePoint) == 1 ? decoder.nextPrintables() : new int[0];
+                    if(printables.length == 0)
+                        this.buffer().writeChar((char) codePoint);
+                    else {
+                        int[] input = new int[printables.length + 1];
+                        input[0] = codePoint;
+                        System.arraycopy(printables, 0, input, 1, printables.length);
+                        this.buffer().writeChars(input);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Insert the pasted text with one undo entry and one redraw per line.
+         * A newline in the paste continues the input on a new line, the same way as a
+         * multi-line command, so nothing is executed before the user press enter.
+         * Tabs are expanded to spaces, other control characters can not be displayed
+         * by the buffer and are skipped.
+         * In vi command mode we switch to insert mode first.
+         * If an action have focus (eg search), it will get the printable input one key at the time.
+         */
+        private void paste(PasteKeyAction event) {
+            int[] input = event.getInput();
+            if(editMode.isInChainedAction()) {
+                for(int codePoint : input)
+                    if(Key.isPrintable(codePoint))
+                        parse(editMode.createKeyEvent(new int[]{codePoint}));
+                return;
+            }
+            if(!notInCommandNode())
+                editMode.setStatus(EditMode.Status.EDIT);
+
+            Buffer buffer = this.buffer().buffer();
+            boolean multiLine = !buffer.isMasking();
+            //the text after the cursor is moved to the end of the paste
+            int[] tail = new int[0];
+            if(multiLine && buffer.cursor() < buffer.length() && Arrays.stream(input).anyMatch(c -> c == '\n')) {
+                tail = Arrays.copyOfRange(buffer.getLineMasked(), buffer.cursor(), buffer.length());
+                this.buffer().delete(tail.length);
+            }
+            this.buffer().addActionToUndoStack();
+            int[] line = new int[input.length];
+            int size = 0;
+            for(int codePoint : input) {
+                if(codePoint == '\n' && multiLine) {
+                    this.buffer().writeChars(Arrays.copyOf(line, size));
+                    size = 0;
+                    this.buffer().undoManager().clear();
+                    buffer.setMultiLine(true);
+                    buffer.updateMultiLineBuffer();
+                    this.buffer().writeOut(Config.CR);
+                    this.buffer().drawLine();
+                    this.buffer().addActionToUndoStack();
+                }
+                else if(codePoint == '\t') {
+                    int spaces = TAB_WIDTH - (buffer.cursor() + size) % TAB_WIDTH;
+                    if(size + spaces > line.length)
+                        line = Arrays.copyOf(line, size + spaces + input.length);
+                    Arrays.fill(line, size, size + spaces, ' ');
+                    size += spaces;
+                }
+                else if(Key.isPrintable(codePoint))
+                    line[size++] = codePoint;
+            }
+            if(size > 0)
+                this.buffer().writeChars(Arrays.copyOf(line, size));
+            if(tail.length > 0) {
+                this.buffer().writeChars(tail);
+                this.buffer().moveCursor(-tail.length);
             }
         }
 
@@ -313,13 +400,16 @@ public class Readline {
             //setting attributes to previous values
             attributes = conn.enterRawMode();
 
+            if(flags.containsKey(ReadlineFlag.BRACKETED_PASTE))
+                conn.stdoutHandler().accept(BRACKETED_PASTE_ON);
+
             //last, display prompt
             consoleBuffer.drawLine();
             //last process input, the readInput() can read/finish in one go
             //since EventDecoder might have queued up data
-            conn.setStdinHandler(data -> {
+            conn.setStdinSliceHandler((data, offset, length) -> {
                 synchronized(Readline.this) {
-                    decoder.add(data);
+                    decoder.add(data, offset, length);
                 }
                 readInput();
             });
@@ -356,6 +446,15 @@ public class Readline {
                 returnValue = input;
         }
 
+        @Override
+        public void execute(Runnable task) {
+            synchronized (Readline.this) {
+                //ignore the task if the readline is finished
+                if(inputProcessor == this)
+                    task.run();
+            }
+        }
+
         @Override
         public EditMode editMode() {
             return editMode;
@@ -26,8 +26,11 @@ import org.aesh.readline.editing.EditModeBuilder;
 import org.aesh.readline.history.FileHistory;
 import org.aesh.readline.history.History;
 import org.aesh.readline.history.InMemoryHistory;
+import org.aesh.readline.history.SyncPolicy;
 
 import java.io.File;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
@@ -38,9 +41,15 @@ public class ReadlineBuilder {
     private EditMode editMode;
     private History history;
     private CompletionHandler completionHandler;
+    private Executor completionExecutor;
+    private int completionParallelism;
+    private long completionTimeout;
     private int historySize = 50;
     private String historyFile;
     private boolean enableHistory = true;
+    private boolean appendHistory = false;
+    private boolean historyEraseDuplicates = false;
+    private SyncPolicy historySyncPolicy = SyncPolicy.NEVER;
 
     public static ReadlineBuilder builder() {
         return new ReadlineBuilder();
@@ -74,10 +83,50 @@ public class ReadlineBuilder {
          return apply(c -> c.historyFile = historyFile);
     }
 
+    /**
+     * Append each history entry to the history file when it is added,
+     * instead of writing the whole file when history is stopped.
+     */
+    public ReadlineBuilder appendHistory(boolean appendHistory) {
+        return apply(c -> c.appendHistory = appendHistory);
+    }
+
+    /**
+     * Remove older history entries that are equal to a new entry
+     */
+    public ReadlineBuilder historyEraseDuplicates(boolean historyEraseDuplicates) {
+        return apply(c -> c.historyEraseDuplicates = historyEraseDuplicates);
+    }
+
+    public ReadlineBuilder historySyncPolicy(SyncPolicy historySyncPolicy) {
+        return apply(c -> c.historySyncPolicy = historySyncPolicy);
+    }
+
     public ReadlineBuilder completionHandler(CompletionHandler completionHandler) {
         return apply(c -> c.completionHandler = completionHandler);
     }
 
+    /**
+     * Run the completions on the given executor so slow completions do not block the input
+     */
+    public ReadlineBuilder completionExecutor(Executor completionExecutor) {
+        return apply(c -> c.completionExecutor = completionExecutor);
+    }
+
+    /**
+     * Run the completions in parallel on a pool with the given number of threads
+     */
+    public ReadlineBuilder parallelCompletion(int completionParallelism) {
+        return apply(c -> c.completionParallelism = completionParallelism);
+    }
+
+    /**
+     * Max time in milliseconds each completion can take
+     */
+    public ReadlineBuilder completionTimeout(long completionTimeout) {
+        return apply(c -> c.completionTimeout = completionTimeout);
+    }
+
     public Readline build() {
         if(editMode == null)
             editMode = EditModeBuilder.builder().create();
@@ -88,10 +137,19 @@ public class ReadlineBuilder {
             if(historyFile == null || !new File(historyFile).isFile())
                 history = new InMemoryHistory(historySize);
             else
-                history = new FileHistory(new File(historyFile), historySize);
+                history = new FileHistory(new File(historyFile), historySize, null, false,
+                        appendHistory, historySyncPolicy);
+            if(historyEraseDuplicates)
+                ((InMemoryHistory) history).setEraseDuplicates(true);
         }
         if(completionHandler == null)
             completionHandler = new SimpleCompletionHandler();
+        if(completionExecutor != null)
+            completionHandler.setCompletionExecutor(completionExecutor);
+        else if(completionParallelism > 1)
+            completionHandler.setParallelCompletion(completionParallelism);
+        if(completionTimeout > 0)
+            completionHandler.setCompletionTimeout(completionTimeout, TimeUnit.MILLISECONDS);
 
        return new Readline(editMode, history, completionHandler);
     }
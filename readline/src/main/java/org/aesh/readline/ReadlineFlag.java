@@ -36,6 +36,12 @@ public enum ReadlineFlag {
     /**
      * Do not discard lines starting with '#'
      */
-    NO_COMMENT_DISCARD
+    NO_COMMENT_DISCARD,
+
+    /**
+     * Enable bracketed paste mode in the terminal while reading input.
+     * Pasted text is then inserted into the buffer in one go.
+     */
+    BRACKETED_PASTE
 
 }
@@ -21,8 +21,8 @@ package org.aesh.readline.action;
 
 import org.aesh.readline.terminal.Key;
 import org.aesh.readline.editing.EditMode;
+import org.aesh.readline.util.WcWidth;
 
-import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Queue;
 
@@ -31,31 +31,45 @@ import java.util.Queue;
  */
 public class ActionDecoder {
 
-    private KeyAction[] mappings;
+    private static final int[] PASTE_START = {27, '[', '2', '0', '0', '~'};
+    private static final int[] PASTE_END = {27, '[', '2', '0', '1', '~'};
+
+    private KeyActionTrie mappings;
     private final Queue<KeyAction> actions = new LinkedList<>();
-    private int[] buffer = new int[0];
+    private final IntRingBuffer buffer = new IntRingBuffer();
+    //result of the last parse, valid until more input is added or it is consumed
+    private KeyAction parsed;
+    //true if we are between the bracketed paste start and end markers
+    private boolean pasting;
+    //how much of a pending paste that has been searched for the end marker
+    private int pasteScanned;
 
     public ActionDecoder(EditMode editMode) {
-        this.mappings = editMode.keys();
+        this.mappings = new KeyActionTrie(editMode.keys());
     }
 
     public ActionDecoder() {
-        this.mappings = Key.values();
+        this.mappings = new KeyActionTrie(Key.values());
     }
 
     public void add(int[] input) {
-        buffer = Arrays.copyOf(buffer, buffer.length + input.length);
-        System.arraycopy(input, 0, buffer, buffer.length - input.length, input.length);
+        buffer.add(input);
+        parsed = null;
+    }
+
+    public void add(int[] input, int offset, int length) {
+        buffer.add(input, offset, length);
+        parsed = null;
     }
 
     public void add(int input) {
-        buffer = Arrays.copyOf(buffer, buffer.length + 1);
-        System.arraycopy(new int[]{input}, 0, buffer, buffer.length - 1, 1);
+        buffer.add(input);
+        parsed = null;
     }
 
     public KeyAction peek() {
         if (actions.isEmpty()) {
-            return parse(buffer);
+            return parse();
         } else {
             return actions.peek();
         }
@@ -67,56 +81,110 @@ public class ActionDecoder {
 
     public KeyAction next() {
         if (actions.isEmpty()) {
-            KeyAction next = parse(buffer);
+            KeyAction next = parse();
             if (next != null) {
                 actions.add(next);
-                buffer = Arrays.copyOfRange(buffer, next.length(), buffer.length);
+                buffer.skip(next.length());
+                parsed = null;
             }
         }
         return actions.remove();
     }
 
+    /**
+     * Remove the run of printable code points at the start of the input that
+     * are not part of any key mapping, so they can be inserted into the buffer in one go.
+     *
+     * @return the printable code points, or an empty array if the next input is not
+     * a plain printable key
+     */
+    public int[] nextPrintables() {
+        if(!actions.isEmpty() || pasting)
+            return new int[0];
+        int length = 0;
+        while(length < buffer.size() && isPlainPrintable(buffer.get(length)))
+            length++;
+        if(length > 0)
+            parsed = null;
+        return buffer.remove(length);
+    }
+
+    private boolean isPlainPrintable(int codePoint) {
+        return Key.isPrintable(codePoint) && WcWidth.width(codePoint) == 1 &&
+                !mappings.startsSequence(codePoint);
+    }
+
     public void setMappings(EditMode editMode) {
-        mappings = editMode.keys();
-    }
-
-    private KeyAction parse(int[] buffer) {
-        if (buffer.length > 0) {
-            KeyAction candidate = null;
-            int prefixes = 0;
-            next:
-            for (KeyAction action : mappings) {
-                if (action.length() > 0) {
-                    if (action.length() <= buffer.length) {
-                        for (int i = 0;i < action.length();i++) {
-                            if (action.getCodePointAt(i) != buffer[i]) {
-                                continue next;
-                            }
-                        }
-                        if (candidate != null && candidate.length() > action.length()) {
-                            continue;
-                        }
-                        candidate = action;
-                    }
-                    else {
-                        for (int i = 0;i < buffer.length;i++) {
-                            if (action.getCodePointAt(i) != buffer[i]) {
-                                continue next;
-                            }
-                        }
-                        prefixes++;
-                    }
-                }
+        mappings = new KeyActionTrie(editMode.keys());
+        parsed = null;
+    }
+
+    private KeyAction parse() {
+        if (parsed == null)
+            parsed = decode();
+        return parsed != KeyActionTrie.INCOMPLETE ? parsed : null;
+    }
+
+    private KeyAction decode() {
+        if (!skipPasteMarkers() || buffer.isEmpty())
+            return KeyActionTrie.INCOMPLETE;
+        if (pasting) {
+            int length = pasteLength();
+            //wait for the rest of the paste so it can be inserted in one go
+            if (length < 0)
+                return KeyActionTrie.INCOMPLETE;
+            if (length > 0)
+                return new PasteKeyAction(buffer.toArray(length));
+        }
+        KeyAction action = mappings.find(buffer);
+        if (action == null)
+            action = new DefaultKeyAction(buffer.get(0));
+        return action;
+    }
+
+    /**
+     * Remove bracketed paste start/end markers from the start of the input.
+     *
+     * @return false if the input is an incomplete marker
+     */
+    private boolean skipPasteMarkers() {
+        while (true) {
+            if (!pasting && buffer.startsWith(PASTE_START)) {
+                buffer.skip(PASTE_START.length);
+                pasting = true;
+            }
+            else if (pasting && buffer.startsWith(PASTE_END)) {
+                buffer.skip(PASTE_END.length);
+                pasting = false;
             }
-            if (candidate == null) {
-                if (prefixes == 0) {
-                    return new DefaultKeyAction(buffer[0]);
-                }
-            } else {
-                return candidate;
+            else if (pasting)
+                return buffer.isEmpty() || !buffer.isPrefixOf(PASTE_END);
+            else
+                //only wait when we know it is not another escape sequence, like F9: ESC[20~
+                return buffer.size() < PASTE_START.length - 1 || !buffer.isPrefixOf(PASTE_START);
+        }
+    }
+
+    /**
+     * @return the length of the pasted input at the start of the buffer, up to the
+     * paste end marker, or -1 if the input ends before the paste does
+     */
+    private int pasteLength() {
+        for (int i = pasteScanned; i + PASTE_END.length <= buffer.size(); i++) {
+            if (buffer.get(i) == PASTE_END[0] && endMarkerAt(i)) {
+                pasteScanned = 0;
+                return i;
             }
         }
-        return null;
+        pasteScanned = Math.max(0, buffer.size() - PASTE_END.length + 1);
+        return -1;
+    }
+
+    private boolean endMarkerAt(int index) {
+        for (int i = 1; i < PASTE_END.length; i++)
+            if (buffer.get(index + i) != PASTE_END[i])
+                return false;
+        return true;
     }
 
     private class DefaultKeyAction implements KeyAction {
@@ -0,0 +1,159 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.action;
+
+/**
+ * Growable FIFO queue of code points.
+ * Input is appended at the write index and consumed from the read index,
+ * the backing array is only copied when it needs to grow.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class IntRingBuffer {
+
+    private int[] data;
+    private int readIndex;
+    private int writeIndex;
+    private int size;
+
+    IntRingBuffer() {
+        this(16);
+    }
+
+    IntRingBuffer(int capacity) {
+        data = new int[Math.max(capacity, 1)];
+    }
+
+    void add(int value) {
+        ensureCapacity(size + 1);
+        data[writeIndex] = value;
+        writeIndex = (writeIndex + 1) % data.length;
+        size++;
+    }
+
+    void add(int[] values) {
+        add(values, 0, values.length);
+    }
+
+    void add(int[] values, int offset, int length) {
+        ensureCapacity(size + length);
+        int first = Math.min(length, data.length - writeIndex);
+        System.arraycopy(values, offset, data, writeIndex, first);
+        System.arraycopy(values, offset + first, data, 0, length - first);
+        writeIndex = (writeIndex + length) % data.length;
+        size += length;
+    }
+
+    /**
+     * @param index position relative to the read index
+     * @return the value at the given position
+     */
+    int get(int index) {
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: "+index+", size: "+size);
+        return data[(readIndex + index) % data.length];
+    }
+
+    /**
+     * Remove the given number of values from the start of the queue
+     *
+     * @param length number of values to remove
+     */
+    void skip(int length) {
+        if(length < 0 || length > size)
+            throw new IndexOutOfBoundsException("Length: "+length+", size: "+size);
+        readIndex = (readIndex + length) % data.length;
+        size -= length;
+        //start from the beginning again when we're empty to keep the data contiguous
+        if(size == 0) {
+            readIndex = 0;
+            writeIndex = 0;
+        }
+    }
+
+    /**
+     * Remove the given number of values from the start of the queue
+     *
+     * @param length number of values to remove
+     * @return the removed values
+     */
+    int[] remove(int length) {
+        int[] out = toArray(length);
+        skip(length);
+        return out;
+    }
+
+    /**
+     * @param length number of values to copy
+     * @return a copy of the given number of values from the start of the queue
+     */
+    int[] toArray(int length) {
+        int[] out = new int[length];
+        for(int i = 0; i < length; i++)
+            out[i] = get(i);
+        return out;
+    }
+
+    /**
+     * @param values values
+     * @return true if the queue starts with the given values
+     */
+    boolean startsWith(int[] values) {
+        if(values.length > size)
+            return false;
+        for(int i = 0; i < values.length; i++)
+            if(get(i) != values[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * @param values values
+     * @return true if the whole queue is a prefix of the given values
+     */
+    boolean isPrefixOf(int[] values) {
+        if(size > values.length)
+            return false;
+        for(int i = 0; i < size; i++)
+            if(get(i) != values[i])
+                return false;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity > data.length) {
+            int[] newData = new int[Math.max(capacity, data.length * 2)];
+            int first = Math.min(size, data.length - readIndex);
+            System.arraycopy(data, readIndex, newData, 0, first);
+            System.arraycopy(data, 0, newData, first, size - first);
+            data = newData;
+            readIndex = 0;
+            writeIndex = size;
+        }
+    }
+}
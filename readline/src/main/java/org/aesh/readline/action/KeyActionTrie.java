@@ -0,0 +1,130 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.action;
+
+import java.util.Arrays;
+
+/**
+ * Prefix tree of the key sequences bound in an edit mode.
+ * It is built once from the mappings and lets the {@link ActionDecoder} find
+ * the longest matching key sequence by walking the input only once.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class KeyActionTrie {
+
+    /**
+     * Result of a lookup where the input is a prefix of one or more
+     * key sequences, but do not match any of them yet.
+     */
+    static final KeyAction INCOMPLETE = new KeyAction() {
+        @Override
+        public int getCodePointAt(int index) throws IndexOutOfBoundsException {
+            throw new IndexOutOfBoundsException("Incomplete key sequence");
+        }
+
+        @Override
+        public int length() {
+            return 0;
+        }
+
+        @Override
+        public String name() {
+            return "incomplete";
+        }
+    };
+
+    private final Node root = new Node();
+
+    KeyActionTrie(KeyAction[] mappings) {
+        for(KeyAction action : mappings)
+            add(action);
+    }
+
+    private void add(KeyAction action) {
+        if(action.length() == 0)
+            return;
+        Node node = root;
+        for(int i = 0; i < action.length(); i++)
+            node = node.getOrCreate(action.getCodePointAt(i));
+        //if two mappings have the same sequence the last one wins
+        node.action = action;
+    }
+
+    /**
+     * Find the longest key sequence matching the start of the input.
+     *
+     * @param input input
+     * @return the matching KeyAction, {@link #INCOMPLETE} if the input is a prefix
+     * of a longer sequence, or null if nothing matches
+     */
+    KeyAction find(IntRingBuffer input) {
+        KeyAction candidate = null;
+        Node node = root;
+        for(int i = 0; i < input.size(); i++) {
+            node = node.get(input.get(i));
+            if(node == null)
+                return candidate;
+            if(node.action != null)
+                candidate = node.action;
+        }
+        if(candidate == null && node.size > 0)
+            return INCOMPLETE;
+        return candidate;
+    }
+
+    /**
+     * @param codePoint code point
+     * @return true if any key sequence starts with the given code point
+     */
+    boolean startsSequence(int codePoint) {
+        return root.get(codePoint) != null;
+    }
+
+    private static class Node {
+        private int[] keys = new int[0];
+        private Node[] children = new Node[0];
+        private int size;
+        private KeyAction action;
+
+        private Node get(int key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            return index < 0 ? null : children[index];
+        }
+
+        private Node getOrCreate(int key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if(index >= 0)
+                return children[index];
+            index = -(index + 1);
+            if(size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2 + 1);
+                children = Arrays.copyOf(children, size * 2 + 1);
+            }
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(children, index, children, index + 1, size - index);
+            Node node = new Node();
+            keys[index] = key;
+            children[index] = node;
+            size++;
+            return node;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.action;
+
+import java.util.Arrays;
+
+/**
+ * Text received in bracketed paste mode, between ESC[200~ and ESC[201~.
+ * The whole paste is one action, control characters included, so nothing
+ * in it is decoded as a key. Line endings (CR LF and CR) are normalised to LF.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class PasteKeyAction implements KeyAction {
+
+    private final int[] raw;
+    private final int[] input;
+
+    PasteKeyAction(int[] raw) {
+        this.raw = raw;
+        this.input = normalizeLineEndings(raw);
+    }
+
+    private static int[] normalizeLineEndings(int[] input) {
+        int[] out = new int[input.length];
+        int size = 0;
+        for (int i = 0; i < input.length; i++) {
+            if (input[i] == '\r') {
+                out[size++] = '\n';
+                if (i + 1 < input.length && input[i + 1] == '\n')
+                    i++;
+            }
+            else
+                out[size++] = input[i];
+        }
+        return size == out.length ? out : Arrays.copyOf(out, size);
+    }
+
+    @Override
+    public int getCodePointAt(int index) throws IndexOutOfBoundsException {
+        return raw[index];
+    }
+
+    /**
+     * @return the number of code points read from the input, this can be more than
+     * the length of {@link #getInput()} since line endings are normalised
+     */
+    @Override
+    public int length() {
+        return raw.length;
+    }
+
+    @Override
+    public String name() {
+        return "bracketed-paste";
+    }
+
+    /**
+     * @return the pasted text, with normalised line endings
+     */
+    public int[] getInput() {
+        return input;
+    }
+}
@@ -106,6 +106,8 @@ public class ActionMapper {
             return new ForwardSearchHistory();
         else if(function.equals("forward-word"))
             return new MoveForwardWord();
+        else if(function.equals("fuzzy-search-history"))
+            return new FuzzySearchHistory();
         else if(function.equals("history-search-backward"))
             return new NullAction(); // TODO: need to add a proper Operation
         else if(function.equals("history-search-forward"))
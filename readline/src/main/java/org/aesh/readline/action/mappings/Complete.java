@@ -34,6 +34,8 @@ public class Complete implements ActionEvent {
 
     private boolean askForCompletion = false;
     private KeyAction key;
+    private CompletionHandler completionHandler;
+    private PageKey pageKey;
 
     @Override
     public String name() {
@@ -42,7 +44,16 @@ public class Complete implements ActionEvent {
 
     @Override
     public void accept(InputProcessor inputProcessor) {
-        if(askForCompletion) {
+        if(isPaging()) {
+            if(pageKey == PageKey.PAGE)
+                completionHandler.showMoreCompletions(inputProcessor, false);
+            else if(pageKey == PageKey.LINE)
+                completionHandler.showMoreCompletions(inputProcessor, true);
+            else
+                completionHandler.stopPaging(inputProcessor);
+            pageKey = null;
+        }
+        else if(askForCompletion) {
             if(key == Key.y) {
                 askForCompletion = false;
                 key = null;
@@ -59,6 +70,7 @@ public class Complete implements ActionEvent {
         }
         else {
             if(inputProcessor.buffer().completer() != null) {
+                completionHandler = inputProcessor.buffer().completer();
                 inputProcessor.buffer().completer().complete( inputProcessor);
                 if(inputProcessor.buffer().completer().completionStatus() ==
                         CompletionHandler.CompletionStatus.ASKING_FOR_COMPLETIONS) {
@@ -70,6 +82,18 @@ public class Complete implements ActionEvent {
 
     @Override
     public void input(Action action, KeyAction key) {
+        if(isPaging()) {
+            if(Key.SPACE.equalTo(key.buffer().array()) || Key.y.equalTo(key.buffer().array()))
+                pageKey = PageKey.PAGE;
+            else if(action instanceof Enter)
+                pageKey = PageKey.LINE;
+            else
+                pageKey = PageKey.QUIT;
+            return;
+        }
+        //asynchronous completions might ask after accept have returned
+        if(!askForCompletion && isAsking())
+            askForCompletion = true;
         if(askForCompletion) {
             if(Key.isPrintable(key.buffer())) {
                 if(Key.y.equalTo(key.buffer().array())) {
@@ -84,7 +108,20 @@ public class Complete implements ActionEvent {
 
     @Override
     public boolean keepFocus() {
-        return askForCompletion;
+        return askForCompletion || isAsking() || isPaging();
+    }
+
+    private boolean isPaging() {
+        return completionHandler != null &&
+                completionHandler.completionStatus() == CompletionHandler.CompletionStatus.PAGING;
+    }
+
+    private boolean isAsking() {
+        return completionHandler != null &&
+                completionHandler.completionStatus() == CompletionHandler.CompletionStatus.ASKING_FOR_COMPLETIONS;
     }
 
+    private enum PageKey {
+        PAGE, LINE, QUIT
+    }
 }
@@ -0,0 +1,183 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.action.mappings;
+
+import org.aesh.readline.InputProcessor;
+import org.aesh.readline.action.Action;
+import org.aesh.readline.action.KeyAction;
+import org.aesh.readline.action.SearchAction;
+import org.aesh.readline.history.FuzzyHistorySearch;
+import org.aesh.readline.terminal.Key;
+import org.aesh.readline.util.IntArrayBuilder;
+import org.aesh.readline.util.Parser;
+import org.aesh.terminal.utils.ANSI;
+
+/**
+ * Incremental fuzzy search of the history, the entries that contain the typed chars
+ * in order are ranked and the best match is shown.
+ * Invoking the action again, or moving up/down, select the next/previous ranked match.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class FuzzySearchHistory implements SearchAction {
+
+    private static final int MAX_RESULTS = 100;
+    private static final int[] SEARCH_TEXT = Parser.toCodePoints("(fuzzy-search) `");
+    private static final int[] DIVIDER = Parser.toCodePoints("': ");
+
+    private SearchAction.Status status = Status.SEARCH_NOT_STARTED;
+    private FuzzyHistorySearch search;
+    private IntArrayBuilder searchArgument;
+    private int[] results;
+    private int selected;
+
+    FuzzySearchHistory() {
+    }
+
+    @Override
+    public String name() {
+        return "fuzzy-search-history";
+    }
+
+    @Override
+    public void input(Action action, KeyAction key) {
+        if(action == this && search == null)
+            status = Status.SEARCH_NOT_STARTED;
+        else if(action == null && Key.isPrintable(key.buffer())) {
+            searchArgument.append(key.buffer().array()[0]);
+            status = Status.SEARCH_INPUT;
+        }
+        else if(action instanceof Interrupt)
+            status = Status.SEARCH_INTERRUPT;
+        else if(action instanceof Enter)
+            status = Status.SEARCH_END;
+        else if(action instanceof FuzzySearchHistory || action instanceof ReverseSearchHistory ||
+                action instanceof PrevHistory)
+            status = Status.SEARCH_PREV;
+        else if(action instanceof ForwardSearchHistory || action instanceof NextHistory)
+            status = Status.SEARCH_NEXT;
+        else if(action instanceof DeletePrevChar)
+            status = Status.SEARCH_DELETE;
+        else if(action instanceof ForwardChar || action instanceof EndOfLine)
+            status = Status.SEARCH_MOVE_END_OF_LINE;
+        else if(action instanceof BackwardChar || action instanceof BeginningOfLine)
+            status = Status.SEARCH_MOVE_BEGINNING_OF_LINE;
+        else
+            status = Status.SEARCH_EXIT;
+    }
+
+    @Override
+    public boolean keepFocus() {
+        return (status == Status.SEARCH_INPUT || status == Status.SEARCH_PREV ||
+                status == Status.SEARCH_NEXT || status == Status.SEARCH_DELETE);
+    }
+
+    @Override
+    public void accept(InputProcessor inputProcessor) {
+        switch(status) {
+            case SEARCH_NOT_STARTED:
+                search = new FuzzyHistorySearch(inputProcessor.buffer().history());
+                searchArgument = new IntArrayBuilder(inputProcessor.buffer().buffer().multiLine());
+                results = search.search(searchArgument.toArray(), MAX_RESULTS);
+                selected = 0;
+                status = Status.SEARCH_INPUT;
+                break;
+            case SEARCH_INPUT:
+                int[] tmpResults = search.search(searchArgument.toArray(), MAX_RESULTS);
+                //like the other searches we ignore a char that do not match anything
+                if(tmpResults.length == 0)
+                    searchArgument.deleteLastEntry();
+                else {
+                    results = tmpResults;
+                    selected = 0;
+                }
+                break;
+            case SEARCH_DELETE:
+                if(searchArgument.size() > 0) {
+                    searchArgument.deleteLastEntry();
+                    results = search.search(searchArgument.toArray(), MAX_RESULTS);
+                    selected = 0;
+                }
+                break;
+            case SEARCH_PREV:
+                if(selected < results.length - 1)
+                    selected++;
+                break;
+            case SEARCH_NEXT:
+                if(selected > 0)
+                    selected--;
+                break;
+            case SEARCH_INTERRUPT:
+                inputProcessor.buffer().replace(new int[]{});
+                break;
+            case SEARCH_END:
+                inputProcessor.buffer().moveCursor(-inputProcessor.buffer().buffer().cursor());
+                int[] result = result();
+                if(result != null) {
+                    inputProcessor.buffer().replace(result);
+                    inputProcessor.buffer().history().push(inputProcessor.buffer().buffer().multiLine());
+                    inputProcessor.buffer().buffer().reset();
+                    inputProcessor.setReturnValue(result);
+                }
+                else
+                    inputProcessor.buffer().replace(new int[]{});
+                break;
+            case SEARCH_MOVE_BEGINNING_OF_LINE:
+            case SEARCH_MOVE_END_OF_LINE:
+            case SEARCH_EXIT:
+                inputProcessor.buffer().replace(result() != null ? result() : new int[]{});
+                if(status == Status.SEARCH_MOVE_BEGINNING_OF_LINE)
+                    inputProcessor.buffer().moveCursor(-inputProcessor.buffer().buffer().length());
+                else
+                    inputProcessor.buffer().moveCursor(inputProcessor.buffer().buffer().length());
+                break;
+        }
+
+        if(keepFocus())
+            printSearch(inputProcessor);
+        else {
+            search = null;
+            searchArgument = null;
+            results = null;
+        }
+    }
+
+    private int[] result() {
+        if(results == null || results.length == 0)
+            return null;
+        return search.get(results[selected]);
+    }
+
+    private void printSearch(InputProcessor inputProcessor) {
+        IntArrayBuilder builder = new IntArrayBuilder(SEARCH_TEXT);
+        builder.append(searchArgument.toArray()).append(DIVIDER);
+        int cursor = builder.size();
+        int[] result = result();
+        if(result != null)
+            builder.append(result);
+        inputProcessor.buffer().moveCursor(-inputProcessor.buffer().buffer().cursor());
+        inputProcessor.buffer().buffer().disablePrompt(true);
+        inputProcessor.buffer().writeOut(ANSI.CURSOR_START);
+        inputProcessor.buffer().writeOut(ANSI.ERASE_WHOLE_LINE);
+        inputProcessor.buffer().replace(builder.toArray());
+        inputProcessor.buffer().moveCursor(cursor - inputProcessor.buffer().buffer().cursor());
+        inputProcessor.buffer().buffer().disablePrompt(false);
+    }
+}
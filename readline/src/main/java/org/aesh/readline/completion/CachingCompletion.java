@@ -0,0 +1,194 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.completion;
+
+import org.aesh.readline.terminal.formatting.TerminalString;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache the candidates of a Completion, keyed by the buffer up to the cursor.
+ * When the same buffer is completed again the cached candidates are used.
+ *
+ * Filtering is opt-in, only valid for completions where the candidates of a longer
+ * word always is a subset of the candidates of a shorter word. When enabled and the
+ * current word have grown, the candidates cached for the shorter word are filtered
+ * instead of calling the completion again. The completion declare the chars that
+ * start a new level of candidates, eg '/' for paths, the candidates are never filtered
+ * across them. Filtering expect that the candidates start at the offset of the operation
+ * and begin with the word being completed, completions that set ignoreOffset or
+ * ignoreStartsWith are only reused for the exact same buffer.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class CachingCompletion<C extends CompleteOperation> implements Completion<C> {
+
+    private final Completion<C> completion;
+    private final long timeToLive;
+    private final Map<String, Entry> cache;
+    private final String separators;
+
+    /**
+     * Cache the candidates, they are only reused for the exact same buffer
+     *
+     * @param completion the completion that is cached
+     * @param maxSize max number of cached buffers
+     * @param timeToLive how long the candidates can be used
+     * @param unit unit of timeToLive
+     */
+    public CachingCompletion(Completion<C> completion, int maxSize, long timeToLive, TimeUnit unit) {
+        this(completion, maxSize, timeToLive, unit, null);
+    }
+
+    /**
+     * @param completion the completion that is cached
+     * @param maxSize max number of cached buffers
+     * @param timeToLive how long the candidates can be used
+     * @param unit unit of timeToLive
+     * @param separators if not null, the candidates cached for a shorter word are filtered when
+     *                   the word have grown, but never across whitespace or one of these chars
+     */
+    public CachingCompletion(Completion<C> completion, int maxSize, long timeToLive, TimeUnit unit,
+                             String separators) {
+        this.completion = completion;
+        this.timeToLive = unit.toNanos(timeToLive);
+        this.separators = separators;
+        cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Remove all cached candidates
+     */
+    public synchronized void invalidate() {
+        cache.clear();
+    }
+
+    @Override
+    public void complete(C completeOperation) {
+        if(!completeFromCache(completeOperation)) {
+            completion.complete(completeOperation);
+            store(completeOperation);
+        }
+    }
+
+    @Override
+    public CompletionStage<Void> completeAsync(C completeOperation) {
+        if(completeFromCache(completeOperation))
+            return CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> future = completion.completeAsync(completeOperation).toCompletableFuture();
+        CompletableFuture<Void> stored = future.thenRun(() -> store(completeOperation));
+        //let a cancel reach the cached completion
+        stored.whenComplete((v, throwable) -> {
+            if(stored.isCancelled())
+                future.cancel(true);
+        });
+        return stored;
+    }
+
+    private synchronized boolean completeFromCache(C co) {
+        String line = line(co);
+        Entry entry = cache.get(line);
+        if(entry != null && !entry.isExpired()) {
+            entry.copyTo(co, null);
+            return true;
+        }
+        if(separators == null)
+            return false;
+        //look for a shorter buffer that only differ in the current word
+        for(int i = line.length() - 1; i >= 0 && !isSeparator(line.charAt(i)); i--) {
+            entry = cache.get(line.substring(0, i));
+            if(entry != null && !entry.isExpired() && entry.canFilter(line)) {
+                entry.copyTo(co, line.substring(entry.offset));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSeparator(char c) {
+        return Character.isWhitespace(c) || separators.indexOf(c) >= 0;
+    }
+
+    private synchronized void store(C co) {
+        cache.put(line(co), new Entry(co));
+    }
+
+    private static String line(CompleteOperation co) {
+        return co.getBuffer().substring(0, Math.min(co.getCursor(), co.getBuffer().length()));
+    }
+
+    private final class Entry {
+        private final long created = System.nanoTime();
+        private final List<TerminalString> candidates;
+        private final int offset;
+        private final boolean ignoreOffset;
+        private final boolean ignoreStartsWith;
+        private final boolean ignoreNonEscapedSpace;
+        private final boolean appendSeparator;
+        private final char separator;
+
+        private Entry(CompleteOperation co) {
+            candidates = new ArrayList<>(co.getCompletionCandidates().size());
+            //the candidates can be modified when they are displayed
+            for(TerminalString candidate : co.getCompletionCandidates())
+                candidates.add(candidate.cloneRenderingAttributes(candidate.getCharacters()));
+            offset = co.getOffset();
+            ignoreOffset = co.doIgnoreOffset();
+            ignoreStartsWith = co.isIgnoreStartsWith();
+            ignoreNonEscapedSpace = co.doIgnoreNonEscapedSpace();
+            appendSeparator = co.hasAppendSeparator();
+            separator = co.getSeparator();
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - created > timeToLive;
+        }
+
+        private boolean canFilter(String line) {
+            return !ignoreOffset && !ignoreStartsWith && offset <= line.length();
+        }
+
+        /**
+         * @param word if not null, only the candidates starting with word are copied
+         */
+        private void copyTo(CompleteOperation co, String word) {
+            co.setOffset(offset);
+            co.setIgnoreOffset(ignoreOffset);
+            co.setIgnoreStartsWith(ignoreStartsWith);
+            co.setIgnoreNonEscapedSpace(ignoreNonEscapedSpace);
+            co.doAppendSeparator(appendSeparator);
+            co.setSeparator(separator);
+            for(TerminalString candidate : candidates)
+                if(word == null || candidate.getCharacters().startsWith(word))
+                    co.addCompletionCandidate(candidate.cloneRenderingAttributes(candidate.getCharacters()));
+        }
+    }
+}
@@ -19,6 +19,9 @@
  */
 package org.aesh.readline.completion;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * To enable auto completion, commands need to implement this interface.
  *
@@ -33,4 +36,18 @@ public interface Completion<C extends CompleteOperation> {
      * @param completeOperation operation
      */
     void complete(C completeOperation);
+
+    /**
+     * Populate the CompleteOperation object without blocking the input.
+     * Completions that need to do slow work (eg list remote resources) should
+     * override this and complete the returned stage when they are done.
+     * The default implementation call {@link #complete(CompleteOperation)} directly.
+     *
+     * @param completeOperation operation
+     * @return a stage that is completed when the operation is populated
+     */
+    default CompletionStage<Void> completeAsync(C completeOperation) {
+        complete(completeOperation);
+        return CompletableFuture.completedFuture(null);
+    }
 }
@@ -23,23 +23,66 @@ import org.aesh.readline.Buffer;
 import org.aesh.readline.InputProcessor;
 import org.aesh.readline.action.mappings.ActionMapper;
 import org.aesh.readline.terminal.formatting.TerminalString;
+import org.aesh.terminal.utils.ANSI;
 import org.aesh.terminal.utils.Config;
+import org.aesh.readline.util.LoggerUtil;
 import org.aesh.readline.util.Parser;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
+ * Run the registered completions and display the result.
+ * A completion can populate the operation asynchronously with
+ * {@link Completion#completeAsync(CompleteOperation)}, or all completions can be run on
+ * an executor with {@link #setCompletionExecutor(Executor)}. The input is not blocked while
+ * they run, the result is displayed when the last one is done and completions that are
+ * still running are cancelled when new input arrive.
+ * With {@link #setParallelCompletion(int)} the completions are run in parallel on a bounded pool,
+ * and {@link #setCompletionTimeout(long, TimeUnit)} limit how long each of them can take.
+ * The candidates are always merged in the order the completions were added.
+ * Candidates that do not fit on the screen are shown one page at the time.
+ *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public abstract class CompletionHandler<C extends CompleteOperation> {
 
+    private static final Logger LOGGER = LoggerUtil.getLogger(CompletionHandler.class.getName());
+    private static ScheduledExecutorService timeoutExecutor;
+    private static final String MORE = "--More--";
+    //seconds an idle parallel completion thread is kept
+    private static final long IDLE_TIMEOUT = 60;
+
     private CompletionStatus status = CompletionStatus.COMPLETE;
     private int displayCompletionSize = 100;
     private final List<Completion> completionList;
     private Function<Buffer, C> aliasHandler;
+    private Executor executor;
+    private ExecutorService parallelExecutor;
+    private long timeout;
+    private Map<Completion, Long> timings = Collections.emptyMap();
+    private List<CompletableFuture<Void>> pending = Collections.emptyList();
+    private int generation;
+    private CompletionPager pager;
 
     public CompletionHandler() {
         completionList = new ArrayList<>();
@@ -82,6 +125,100 @@ public abstract class CompletionHandler<C extends CompleteOperation> {
             this.completionList.addAll(completions);
     }
 
+    /**
+     * Run the completions on the given executor instead of the input thread
+     *
+     * @param executor executor, or null to run them on the input thread
+     */
+    public void setCompletionExecutor(Executor executor) {
+        if(parallelExecutor != null && executor != parallelExecutor) {
+            parallelExecutor.shutdown();
+            parallelExecutor = null;
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Run the completions in parallel on a pool with the given number of threads
+     *
+     * @param parallelism max number of completions that run at the same time,
+     *                    1 or less run them on the input thread
+     */
+    public void setParallelCompletion(int parallelism) {
+        if(parallelism > 1) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism,
+                    IDLE_TIMEOUT, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setName("Aesh Completion");
+                //should not block shutdown
+                thread.setDaemon(true);
+                return thread;
+            });
+            //idle threads exit, so the pool do not outlive a handler that is not used anymore
+            pool.allowCoreThreadTimeOut(true);
+            setCompletionExecutor(pool);
+            parallelExecutor = pool;
+        }
+        else
+            setCompletionExecutor(null);
+    }
+
+    /**
+     * Max time each completion can take, the candidates of a completion that time out are ignored
+     *
+     * @param timeout timeout, 0 or less to wait until all completions are done
+     * @param unit unit
+     */
+    public void setCompletionTimeout(long timeout, TimeUnit unit) {
+        this.timeout = timeout > 0 ? unit.toNanos(timeout) : 0;
+    }
+
+    /**
+     * @return how long each completion took in the last completion, in nanoseconds,
+     * in the order they were added
+     */
+    public Map<Completion, Long> getCompletionTimings() {
+        return timings;
+    }
+
+    public Executor getCompletionExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return true if there are completions that are still running
+     */
+    public boolean isCompleting() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Cancel the completions that are still running, their result will not be displayed.
+     */
+    public void cancel() {
+        if(!pending.isEmpty()) {
+            generation++;
+            List<CompletableFuture<Void>> running = pending;
+            pending = Collections.emptyList();
+            for(CompletableFuture<Void> future : running)
+                future.cancel(true);
+        }
+    }
+
+    /**
+     * Cancel the running completions and shut down the pool created by
+     * {@link #setParallelCompletion(int)}. An executor set with
+     * {@link #setCompletionExecutor(Executor)} is not shut down.
+     */
+    public void shutdown() {
+        cancel();
+        if(parallelExecutor != null) {
+            parallelExecutor.shutdownNow();
+            parallelExecutor = null;
+            executor = null;
+        }
+    }
+
     public abstract C createCompleteOperation(String buffer, int cursor);
 
     /**
@@ -94,13 +231,133 @@ public abstract class CompletionHandler<C extends CompleteOperation> {
     public void complete(InputProcessor inputProcessor) {
         if(completionList.size() == 0)
             return;
+        cancel();
         Buffer buffer = inputProcessor.buffer().buffer();
 
-        if(completionList.size() < 1)
-            return;
+        List<Completion> completions = new ArrayList<>(completionList);
+        List<C> operations = new ArrayList<>(completions.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(completions.size());
+        long[] starts = new long[completions.size()];
+        long[] durations = new long[completions.size()];
+        CompletableFuture[] timed = new CompletableFuture[completions.size()];
+        for(int i=0; i < completions.size(); i++) {
+            final C co;
+            if(aliasHandler == null)
+                co = createCompleteOperation(buffer.asString(), buffer.multiCursor());
+            else
+                co = aliasHandler.apply(buffer);
+            operations.add(co);
+            CompletableFuture<Void> future = complete(completions.get(i), co, starts, i);
+            futures.add(future);
+            final int index = i;
+            timed[i] = future.handle((v, throwable) -> {
+                //not started if it was cancelled before it was run
+                durations[index] = starts[index] == 0 ? 0 : System.nanoTime() - starts[index];
+                return null;
+            });
+        }
 
-        List<C> possibleCompletions = createCompletionList(buffer);
+        CompletableFuture<Void> all = CompletableFuture.allOf(timed)
+                .thenRun(() -> recordTimings(completions, durations));
+        if(all.isDone()) {
+            processCompletions(createCompletionList(operations, futures), buffer, inputProcessor);
+        }
+        else {
+            pending = futures;
+            int id = ++generation;
+            all.whenComplete((v, throwable) -> inputProcessor.execute(() -> {
+                //ignore the result if it have been cancelled
+                if(id == generation) {
+                    pending = Collections.emptyList();
+                    processCompletions(createCompletionList(operations, futures),
+                            inputProcessor.buffer().buffer(), inputProcessor);
+                }
+            }));
+        }
+    }
 
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Void> complete(Completion completion, C co, long[] starts, int index) {
+        CompletableFuture<Void> future;
+        if(executor == null) {
+            starts[index] = System.nanoTime();
+            future = completion.completeAsync(co).toCompletableFuture();
+        }
+        else {
+            CompletableFuture<CompletionStage<Void>> started = new CompletableFuture<>();
+            Runnable task = () -> {
+                starts[index] = System.nanoTime();
+                try {
+                    started.complete(completion.completeAsync(co));
+                }
+                catch(Throwable t) {
+                    started.completeExceptionally(t);
+                }
+            };
+            future = started.thenCompose(stage -> stage);
+            if(executor instanceof ExecutorService) {
+                //keep the task so the thread running it is interrupted on cancel and timeout
+                Future<?> submitted = ((ExecutorService) executor).submit(task);
+                future.whenComplete((v, throwable) -> {
+                    if(throwable != null)
+                        submitted.cancel(true);
+                });
+            }
+            else
+                executor.execute(task);
+        }
+        if(timeout > 0 && !future.isDone()) {
+            ScheduledFuture<?> timer = timeoutExecutor().schedule(() ->
+                    future.completeExceptionally(new TimeoutException("Completion timed out: "+completion)),
+                    timeout, TimeUnit.NANOSECONDS);
+            future.whenComplete((v, throwable) -> timer.cancel(false));
+        }
+        return future;
+    }
+
+    private void recordTimings(List<Completion> completions, long[] durations) {
+        Map<Completion, Long> result = new LinkedHashMap<>(completions.size());
+        for(int i = 0; i < completions.size(); i++) {
+            result.put(completions.get(i), durations[i]);
+            if(LOGGER.isLoggable(Level.FINE))
+                LOGGER.fine("Completion "+completions.get(i)+" took "+
+                        TimeUnit.NANOSECONDS.toMillis(durations[i])+"ms");
+        }
+        timings = result;
+    }
+
+    private static synchronized ScheduledExecutorService timeoutExecutor() {
+        if(timeoutExecutor == null) {
+            timeoutExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setName("Aesh Completion Timeout");
+                //should not block shutdown
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return timeoutExecutor;
+    }
+
+    private List<C> createCompletionList(List<C> operations, List<CompletableFuture<Void>> futures) {
+        List<C> possibleCompletions = new ArrayList<>();
+        for(int i=0; i < operations.size(); i++) {
+            C co = operations.get(i);
+            if(futures.get(i).isCompletedExceptionally())
+                futures.get(i).whenComplete((v, throwable) ->
+                        LOGGER.log(Level.WARNING, "Completion failed", throwable));
+            else if(co.getCompletionCandidates() != null && co.getCompletionCandidates().size() > 0)
+                possibleCompletions.add(co);
+        }
+        return possibleCompletions;
+    }
+
+    /**
+     * 1. If we find only one, display it.
+     * 2. If we find more than one, display them,
+     *    but not more than 100 at once
+     */
+    private void processCompletions(List<C> possibleCompletions, Buffer buffer, InputProcessor inputProcessor) {
         //LOGGER.info("Found completions: "+possibleCompletions);
 
         if(possibleCompletions.size() == 0) {
@@ -122,23 +379,6 @@ public abstract class CompletionHandler<C extends CompleteOperation> {
         }
     }
 
-    private List<C> createCompletionList(Buffer buffer) {
-        List<C> possibleCompletions = new ArrayList<>();
-        for(int i=0; i < completionList.size(); i++) {
-            final C co;
-            if(aliasHandler == null)
-                co = createCompleteOperation(buffer.asString(), buffer.multiCursor());
-            else
-                co = aliasHandler.apply(buffer);
-
-            completionList.get(i).complete(co);
-
-            if(co.getCompletionCandidates() != null && co.getCompletionCandidates().size() > 0)
-                possibleCompletions.add(co);
-        }
-        return possibleCompletions;
-    }
-
     private void processMultipleCompletions(List<C> possibleCompletions, Buffer buffer, InputProcessor inputProcessor) {
         String startsWith = "";
 
@@ -163,8 +403,8 @@ public abstract class CompletionHandler<C extends CompleteOperation> {
 
             if(completions.size() > 100) {
                 if(status == CompletionStatus.ASKING_FOR_COMPLETIONS) {
-                    displayCompletions(completions, buffer, inputProcessor);
                     status = CompletionStatus.COMPLETE;
+                    displayCompletions(completions, buffer, inputProcessor);
                 }
                 else {
                     status = CompletionStatus.ASKING_FOR_COMPLETIONS;
@@ -220,15 +460,79 @@ public abstract class CompletionHandler<C extends CompleteOperation> {
         }
         //finally move to a new line
         inputProcessor.buffer().writeOut(Config.CR);
-        //then we print out the completions
-        inputProcessor.buffer().writeOut(Parser.formatDisplayListTerminalString(completions,
-                inputProcessor.buffer().size().getHeight(), inputProcessor.buffer().size().getWidth()));
-        //then on the next line we write the line again
+        int width = inputProcessor.buffer().size().getWidth();
+        int height = inputProcessor.buffer().size().getHeight();
+        if(fitsOnScreen(completions, width, height)) {
+            //then we print out the completions
+            inputProcessor.buffer().writeOut(Parser.formatDisplayListTerminalString(completions, height, width));
+            //then on the next line we write the line again
+            inputProcessor.buffer().drawLineForceDisplay();
+        }
+        else {
+            pager = new CompletionPager(completions);
+            showCompletionPage(inputProcessor, height - 1);
+        }
+    }
+
+    private boolean fitsOnScreen(List<TerminalString> completions, int width, int height) {
+        if(width < 1 || height < 2)
+            return true;
+        int maxLength = 0;
+        for(TerminalString completion : completions)
+            maxLength = Math.max(maxLength, completion.getCharacters().length());
+        int numColumns = Math.max(1, Math.min(width / (maxLength + 2), completions.size()));
+        int numRows = (completions.size() + numColumns - 1) / numColumns;
+        //leave a row for the line
+        return numRows < height;
+    }
+
+    /**
+     * Show more of the completions that did not fit on the screen.
+     *
+     * @param inputProcessor input processor
+     * @param line if true only show one more line, else show the next page
+     */
+    public void showMoreCompletions(InputProcessor inputProcessor, boolean line) {
+        if(pager == null)
+            return;
+        clearMorePrompt(inputProcessor);
+        showCompletionPage(inputProcessor, line ? 1 : inputProcessor.buffer().size().getHeight() - 1);
+    }
+
+    /**
+     * Stop showing the completions that did not fit on the screen.
+     *
+     * @param inputProcessor input processor
+     */
+    public void stopPaging(InputProcessor inputProcessor) {
+        if(pager == null)
+            return;
+        pager = null;
+        status = CompletionStatus.COMPLETE;
+        clearMorePrompt(inputProcessor);
         inputProcessor.buffer().drawLineForceDisplay();
     }
 
+    private void showCompletionPage(InputProcessor inputProcessor, int rows) {
+        inputProcessor.buffer().writeOut(pager.next(rows, inputProcessor.buffer().size().getWidth()));
+        if(pager.hasMore()) {
+            status = CompletionStatus.PAGING;
+            inputProcessor.buffer().writeOut(MORE);
+        }
+        else {
+            pager = null;
+            status = CompletionStatus.COMPLETE;
+            inputProcessor.buffer().drawLineForceDisplay();
+        }
+    }
+
+    private void clearMorePrompt(InputProcessor inputProcessor) {
+        inputProcessor.buffer().writeOut(ANSI.CURSOR_START);
+        inputProcessor.buffer().writeOut(ANSI.ERASE_WHOLE_LINE);
+    }
+
     public enum CompletionStatus {
-        ASKING_FOR_COMPLETIONS, COMPLETE;
+        ASKING_FOR_COMPLETIONS, PAGING, COMPLETE;
     }
 
     private static class CaseInsensitiveComparator implements Comparator<TerminalString> {
@@ -0,0 +1,106 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.completion;
+
+import org.aesh.readline.terminal.formatting.TerminalString;
+import org.aesh.terminal.utils.Config;
+
+import java.util.List;
+
+/**
+ * Format a long list of completion candidates one screen at the time.
+ * Each page is laid out in columns like the full listing, but the column
+ * width is only computed from the candidates shown on that page.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class CompletionPager {
+
+    //two spaces between the columns
+    private static final int PADDING = 2;
+
+    private final List<TerminalString> completions;
+    private int position;
+
+    CompletionPager(List<TerminalString> completions) {
+        this.completions = completions;
+    }
+
+    boolean hasMore() {
+        return position < completions.size();
+    }
+
+    int remaining() {
+        return completions.size() - position;
+    }
+
+    /**
+     * Format the next rows of candidates
+     *
+     * @param rows max number of rows
+     * @param width terminal width
+     * @return the formatted rows, each ending with a line separator
+     */
+    String next(int rows, int width) {
+        if(width < 1)
+            width = 80;
+        rows = Math.max(rows, 1);
+
+        //the widest candidate decide how many columns fit, fewer columns give fewer candidates to check
+        int columns = Math.max(1, width / (1 + PADDING));
+        int size;
+        int columnWidth;
+        while(true) {
+            size = (int) Math.min((long) rows * columns, remaining());
+            columnWidth = maxLength(position, position + size) + PADDING;
+            int fits = Math.max(1, width / columnWidth);
+            if(fits >= columns)
+                break;
+            columns = fits;
+        }
+        int usedRows = (size + columns - 1) / columns;
+        columns = (size + usedRows - 1) / usedRows;
+
+        StringBuilder builder = new StringBuilder(usedRows * width);
+        for(int row = 0; row < usedRows; row++) {
+            for(int column = 0; column < columns; column++) {
+                int index = row + column * usedRows;
+                if(index >= size)
+                    break;
+                TerminalString completion = completions.get(position + index);
+                builder.append(completion.toString());
+                //no need to pad the right most column
+                if(column < columns - 1)
+                    for(int i = completion.getCharacters().length(); i < columnWidth; i++)
+                        builder.append(' ');
+            }
+            builder.append(Config.getLineSeparator());
+        }
+        position += size;
+        return builder.toString();
+    }
+
+    private int maxLength(int from, int to) {
+        int max = 0;
+        for(int i = from; i < to; i++)
+            max = Math.max(max, completions.get(i).getCharacters().length());
+        return max;
+    }
+}
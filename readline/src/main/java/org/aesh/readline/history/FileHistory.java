@@ -25,26 +25,66 @@ import org.aesh.readline.util.Parser;
 import org.aesh.readline.util.LoggerUtil;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Read the history file at init and writeToStdOut to it at shutdown
+ * Read the history file at init and write to it at shutdown.
+ *
+ * In append mode each entry is appended to the file when it is pushed, so no entries are lost
+ * if the process is killed. If another process replace the file, it is opened again before the
+ * next entry is appended. When the file contain too many old entries it is compacted in the
+ * background by writing its last entries to a temp file that is renamed over the history file,
+ * so entries appended by other processes are kept.
  *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class FileHistory extends InMemoryHistory {
 
+    //do not compact the file until it contain at least this many old entries
+    private static final int MIN_COMPACT_SIZE = 100;
+    //the history file is read and written with the platform charset
+    private static final Charset CHARSET = Charset.defaultCharset();
+
     private final File historyFile;
+    private final int maxSize;
     private final FileAccessPermission historyFilePermission;
     private final boolean logging;
+    private final boolean append;
+    private final SyncPolicy syncPolicy;
     private static final Logger LOGGER = LoggerUtil.getLogger(FileHistory.class.getName());
 
+    //number of entries in the history file, only used in append mode
+    private int fileSize;
+    private FileOutputStream out;
+    private Writer writer;
+    private Object fileKey;
+    //the entries before this offset have been cleared, only used in append mode
+    private long clearedLength;
+    private ScheduledExecutorService executor;
+    private boolean syncScheduled;
+    private boolean compactScheduled;
+    //true if the last line in the file is not terminated
+    private boolean missingLineSeparator;
+
     public FileHistory(File file, int maxSize) {
         this(file, maxSize, false);
     }
@@ -55,11 +95,36 @@ public class FileHistory extends InMemoryHistory {
 
     public FileHistory(File file, int maxSize, FileAccessPermission historyFilePermission,
                        boolean logging) {
+        this(file, maxSize, historyFilePermission, logging, false, SyncPolicy.NEVER);
+    }
+
+    /**
+     * @param file history file
+     * @param maxSize max number of entries
+     * @param historyFilePermission permissions of the history file, can be null
+     * @param logging log errors
+     * @param append append each entry to the file when it is pushed instead of writing the file at shutdown
+     * @param syncPolicy when appended entries are forced to disk
+     */
+    public FileHistory(File file, int maxSize, FileAccessPermission historyFilePermission,
+                       boolean logging, boolean append, SyncPolicy syncPolicy) {
         super(maxSize);
+        this.maxSize = maxSize == -1 ? Integer.MAX_VALUE : maxSize;
         this.logging = logging;
         historyFile = file;
         this.historyFilePermission = historyFilePermission;
+        this.append = append;
+        this.syncPolicy = syncPolicy;
         readFile();
+        if(append) {
+            try {
+                openWriter();
+            }
+            catch(IOException e) {
+                if(logging)
+                    LOGGER.log(Level.WARNING, "Failed to open history file for appending", e);
+            }
+        }
     }
 
     /**
@@ -67,10 +132,13 @@ public class FileHistory extends InMemoryHistory {
      */
     private void readFile() {
         if(historyFile.exists()) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(historyFile))) {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(historyFile), CHARSET))) {
                 String line;
-                while((line = reader.readLine()) != null)
+                while((line = reader.readLine()) != null) {
                     push(Parser.toCodePoints(line));
+                    fileSize++;
+                }
             } catch(FileNotFoundException ignored) {
                 //AESH-205
             } catch (IOException e) {
@@ -81,36 +149,298 @@ public class FileHistory extends InMemoryHistory {
     }
 
     /**
-     * Write the content of the history buffer to file
+     * Write the content of the history buffer to a temp file and rename it to the history file
      *
      * @throws IOException io
      */
     private void writeFile() throws IOException {
-        historyFile.delete();
-        try (FileWriter fw = new FileWriter(historyFile)) {
+        HistoryFiles.replace(historyFile, historyFilePermission, syncPolicy != SyncPolicy.NEVER, output -> {
+            Writer fw = new OutputStreamWriter(output, CHARSET);
             for(int i=0; i < size();i++)
                 fw.write(Parser.fromCodePoints(get(i)) + (Config.getLineSeparator()));
+            fw.flush();
+        });
+        fileSize = size();
+    }
+
+    /**
+     * Read the last entries of the history file, including the entries other processes have appended.
+     *
+     * @param start offset of the first entry
+     * @param end offset after the last entry
+     * @return the last entries, at most maxSize
+     * @throws IOException io
+     */
+    private Deque<String> readLastEntries(long start, long end) throws IOException {
+        byte[] data = new byte[(int) Math.max(0, end - start)];
+        int read = 0;
+        try (RandomAccessFile file = new RandomAccessFile(historyFile, "r")) {
+            file.seek(start);
+            int count;
+            while(read < data.length && (count = file.read(data, read, data.length - read)) > 0)
+                read += count;
+        }
+        Deque<String> entries = new ArrayDeque<>();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(data, 0, read), CHARSET));
+        String line;
+        while((line = reader.readLine()) != null) {
+            if(line.length() > 0) {
+                entries.addLast(line);
+                if(entries.size() > maxSize)
+                    entries.removeFirst();
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] toBytes(Deque<String> entries) {
+        StringBuilder builder = new StringBuilder();
+        for(String entry : entries)
+            builder.append(entry).append(Config.getLineSeparator());
+        return builder.toString().getBytes(CHARSET);
+    }
+
+    /**
+     * Append the end of the history file to the temp file.
+     *
+     * @return number of lines copied
+     */
+    private int copyEnd(long start, Path tmp) throws IOException {
+        int lines = 0;
+        try (RandomAccessFile file = new RandomAccessFile(historyFile, "r");
+             FileOutputStream output = new FileOutputStream(tmp.toFile(), true)) {
+            file.seek(start);
+            byte[] buffer = new byte[8192];
+            int count;
+            while((count = file.read(buffer)) > 0) {
+                output.write(buffer, 0, count);
+                for(int i = 0; i < count; i++)
+                    if(buffer[i] == '\n')
+                        lines++;
+            }
+            if(lines > 0 && syncPolicy != SyncPolicy.NEVER)
+                output.getChannel().force(false);
+        }
+        return lines;
+    }
+
+    private void openWriter() throws IOException {
+        boolean exists = historyFile.exists();
+        missingLineSeparator = exists && !endsWithNewLine();
+        out = new FileOutputStream(historyFile, true);
+        writer = new OutputStreamWriter(out, CHARSET);
+        fileKey = HistoryFiles.fileKey(historyFile);
+        if(!exists)
+            HistoryFiles.setPermissions(historyFile, historyFilePermission);
+    }
+
+    /**
+     * Open the history file again if another process have replaced it since it was opened,
+     * otherwise the entries would be appended to the old file and lost.
+     */
+    private void reopenIfReplaced() throws IOException {
+        if(!HistoryFiles.isCurrentFile(historyFile, fileKey)) {
+            closeWriter();
+            openWriter();
+            fileSize = countLines();
+            //the offset is not valid in the new file
+            clearedLength = 0;
         }
-        if (historyFilePermission != null) {
-            historyFile.setReadable(false, false);
-            historyFile.setReadable(historyFilePermission.isReadable(), historyFilePermission.isReadableOwnerOnly());
-            historyFile.setWritable(false, false);
-            historyFile.setWritable(historyFilePermission.isWritable(), historyFilePermission.isWritableOwnerOnly());
-            historyFile.setExecutable(false, false);
-            historyFile.setExecutable(historyFilePermission.isExecutable(),
-                    historyFilePermission.isExecutableOwnerOnly());
+    }
+
+    private int countLines() throws IOException {
+        int lines = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(historyFile), CHARSET))) {
+            while(reader.readLine() != null)
+                lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * @return true if the history file is empty or its last line is terminated
+     */
+    private boolean endsWithNewLine() throws IOException {
+        byte[] newLine = "\n".getBytes(CHARSET);
+        try (RandomAccessFile file = new RandomAccessFile(historyFile, "r")) {
+            if(file.length() == 0)
+                return true;
+            if(file.length() < newLine.length)
+                return false;
+            byte[] end = new byte[newLine.length];
+            file.seek(file.length() - newLine.length);
+            file.readFully(end);
+            return Arrays.equals(newLine, end);
+        }
+    }
+
+    private void closeWriter() throws IOException {
+        if(writer != null) {
+            Writer w = writer;
+            FileOutputStream o = out;
+            writer = null;
+            out = null;
+            try {
+                if(syncPolicy != SyncPolicy.NEVER)
+                    o.getChannel().force(false);
+            }
+            finally {
+                w.close();
+            }
         }
     }
 
     @Override
-    public void stop() {
+    public synchronized void push(int[] entry) {
+        super.push(entry);
+    }
+
+    @Override
+    protected void entryAdded(int[] entry) {
+        //writer is null while we read the file and when we're not appending
+        if(writer == null)
+            return;
+        try {
+            append(entry);
+            if(syncPolicy == SyncPolicy.ALWAYS)
+                out.getChannel().force(false);
+            else if(syncPolicy == SyncPolicy.BATCHED && !syncScheduled) {
+                syncScheduled = true;
+                executor().schedule(this::sync, HistoryFiles.SYNC_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+            if(!compactScheduled && fileSize - maxSize >= Math.max(maxSize, MIN_COMPACT_SIZE)) {
+                compactScheduled = true;
+                executor().execute(this::compact);
+            }
+        }
+        catch(IOException e) {
+            if(logging)
+                LOGGER.log(Level.WARNING, "Failed to append to history file", e);
+        }
+    }
+
+    private void append(int[] entry) throws IOException {
+        reopenIfReplaced();
+        //do not join the entry with an unterminated last line
+        if(missingLineSeparator) {
+            writer.write(Config.getLineSeparator());
+            missingLineSeparator = false;
+        }
+        writer.write(Parser.fromCodePoints(entry) + Config.getLineSeparator());
+        writer.flush();
+        fileSize++;
+    }
+
+    private ScheduledExecutorService executor() {
+        if(executor == null)
+            executor = HistoryFiles.newWriterExecutor();
+        return executor;
+    }
+
+    private synchronized void sync() {
+        syncScheduled = false;
+        try {
+            if(out != null)
+                out.getChannel().force(false);
+        }
+        catch(IOException e) {
+            if(logging)
+                LOGGER.log(Level.WARNING, "Failed to sync history file", e);
+        }
+    }
+
+    /**
+     * The temp file is written without holding the lock so push is not blocked by the disk.
+     * Before it is renamed, the entries appended to the history file meanwhile are copied to it.
+     */
+    private void compact() {
+        long start;
+        long end;
+        synchronized (this) {
+            if(writer == null) {
+                compactScheduled = false;
+                return;
+            }
+            start = clearedLength;
+            end = historyFile.length();
+        }
+        Path tmp = null;
+        int entries = 0;
+        try {
+            Deque<String> lastEntries = readLastEntries(start, end);
+            entries = lastEntries.size();
+            tmp = HistoryFiles.writeTemp(historyFile, historyFilePermission, syncPolicy != SyncPolicy.NEVER,
+                    output -> output.write(toBytes(lastEntries)));
+        }
+        catch(IOException e) {
+            if(logging)
+                LOGGER.log(Level.WARNING, "Failed to compact history file", e);
+        }
+        synchronized (this) {
+            compactScheduled = false;
+            if(tmp == null)
+                return;
+            try {
+                //skip it if the history have been stopped, cleared or the file replaced
+                if(writer == null || clearedLength != start ||
+                        !HistoryFiles.isCurrentFile(historyFile, fileKey))
+                    Files.deleteIfExists(tmp);
+                else {
+                    entries += copyEnd(end, tmp);
+                    HistoryFiles.move(tmp, historyFile);
+                    closeWriter();
+                    openWriter();
+                    fileSize = entries;
+                    clearedLength = 0;
+                }
+            }
+            catch(IOException e) {
+                if(logging)
+                    LOGGER.log(Level.WARNING, "Failed to compact history file", e);
+            }
+        }
+    }
+
+    /**
+     * Rewrite the history file with its last entries.
+     */
+    private void writeLastEntries() throws IOException {
+        Deque<String> lastEntries = readLastEntries(clearedLength, historyFile.length());
+        HistoryFiles.replace(historyFile, historyFilePermission, syncPolicy != SyncPolicy.NEVER,
+                output -> output.write(toBytes(lastEntries)));
+        fileSize = lastEntries.size();
+        clearedLength = 0;
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+        if(writer != null)
+            clearedLength = historyFile.length();
+    }
+
+    @Override
+    public synchronized void stop() {
        try {
-           writeFile();
+           if(append) {
+               closeWriter();
+               //only rewrite the file if it contain old entries
+               if(fileSize > maxSize || clearedLength > 0)
+                   writeLastEntries();
+           }
+           else
+               writeFile();
        }
        catch (IOException e) {
            if(logging)
                LOGGER.log(Level.WARNING, "Failed when trying to write history file", e);
        }
+       if(executor != null) {
+           executor.shutdown();
+           executor = null;
+       }
     }
 
 }
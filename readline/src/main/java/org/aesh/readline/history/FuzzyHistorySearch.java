@@ -0,0 +1,263 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Ranked fuzzy search over the entries of a History.
+ * An entry match if the query is a subsequence of it, the matches are ranked by
+ * how tight the match is, how recent the entry is and how often it occur in the history.
+ * Equal entries are only returned once, at the position of the most recent one.
+ *
+ * A snapshot of the history is taken on the first search, the matches of the last query
+ * are kept so when the query grow only those are scored again.
+ * Large histories are scored in parallel.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class FuzzyHistorySearch {
+
+    static final int MATCH = 16;
+    static final int CONSECUTIVE = 8;
+    static final int BOUNDARY = 8;
+    static final int MAX_GAP_PENALTY = 8;
+    static final int RECENCY = 16;
+    static final int FREQUENCY = 8;
+
+    static final int PARALLEL_THRESHOLD = 1 << 15;
+    private static final int CHUNK_SIZE = 1 << 12;
+
+    private final History history;
+
+    private int[][] entries;
+    //number of equal entries for the most recent one, 0 for the older copies
+    private int[] frequency;
+    //ascending indexes of the most recent copy of each entry
+    private int[] distinct;
+
+    private int[] query;
+    private int[] matches;
+    private int[] scores;
+    private int matchCount;
+
+    public FuzzyHistorySearch(History history) {
+        this.history = history;
+    }
+
+    /**
+     * Must be called when entries are added to, or removed from the history.
+     */
+    public void invalidate() {
+        entries = null;
+        frequency = null;
+        distinct = null;
+        query = null;
+        matches = null;
+        scores = null;
+        matchCount = 0;
+    }
+
+    /**
+     * @param query query
+     * @param limit max number of results
+     * @return the indexes of the best matching entries, best match first
+     */
+    public int[] search(int[] query, int limit) {
+        if(entries == null)
+            snapshot();
+
+        if(this.query == null || !startsWith(query, this.query)) {
+            matchCount = distinct.length;
+            System.arraycopy(distinct, 0, matches, 0, matchCount);
+        }
+        this.query = query.clone();
+
+        boolean caseSensitive = hasUpperCase(query);
+        if(matchCount >= PARALLEL_THRESHOLD)
+            IntStream.range(0, (matchCount + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel()
+                    .forEach(chunk -> score(query, caseSensitive, chunk * CHUNK_SIZE,
+                            Math.min(matchCount, (chunk + 1) * CHUNK_SIZE)));
+        else
+            score(query, caseSensitive, 0, matchCount);
+
+        int count = 0;
+        for(int i = 0; i < matchCount; i++) {
+            if(scores[i] >= 0) {
+                matches[count] = matches[i];
+                scores[count] = scores[i] + bonus(matches[i]);
+                count++;
+            }
+        }
+        matchCount = count;
+        return best(limit);
+    }
+
+    /**
+     * @param index index
+     * @return the entry at the given index of the snapshot
+     */
+    public int[] get(int index) {
+        if(entries == null)
+            snapshot();
+        return entries[index];
+    }
+
+    private void score(int[] query, boolean caseSensitive, int from, int to) {
+        for(int i = from; i < to; i++)
+            scores[i] = score(query, entries[matches[i]], caseSensitive);
+    }
+
+    private int bonus(int index) {
+        int recency = (int) ((long) (index + 1) * RECENCY / entries.length);
+        int occurrences = 31 - Integer.numberOfLeadingZeros(frequency[index]);
+        return recency + occurrences * FREQUENCY;
+    }
+
+    //select the highest scores, newer entries win a tie
+    private int[] best(int limit) {
+        int[] best = new int[Math.max(0, Math.min(limit, matchCount))];
+        if(best.length == 0)
+            return best;
+        int size = 0;
+        for(int i = matchCount - 1; i >= 0; i--) {
+            if(size == best.length && scores[i] <= scores[best[size - 1]])
+                continue;
+            int pos = size == best.length ? size - 1 : size++;
+            while(pos > 0 && scores[best[pos - 1]] < scores[i]) {
+                best[pos] = best[pos - 1];
+                pos--;
+            }
+            best[pos] = i;
+        }
+        for(int i = 0; i < size; i++)
+            best[i] = matches[best[i]];
+        return best;
+    }
+
+    private void snapshot() {
+        int size = history.size();
+        entries = new int[size][];
+        if(size >= PARALLEL_THRESHOLD)
+            IntStream.range(0, size).parallel().forEach(i -> entries[i] = history.get(i));
+        else
+            for(int i = 0; i < size; i++)
+                entries[i] = history.get(i);
+
+        frequency = new int[size];
+        Map<HistoryRing.Key, Integer> newest = new HashMap<>();
+        int distinctCount = 0;
+        for(int i = size - 1; i >= 0; i--) {
+            Integer index = newest.putIfAbsent(new HistoryRing.Key(entries[i]), i);
+            if(index == null) {
+                frequency[i] = 1;
+                distinctCount++;
+            }
+            else
+                frequency[index]++;
+        }
+        distinct = new int[distinctCount];
+        for(int i = 0, d = 0; i < size; i++)
+            if(frequency[i] > 0)
+                distinct[d++] = i;
+
+        matches = new int[distinctCount];
+        scores = new int[distinctCount];
+        query = null;
+    }
+
+    /**
+     * Score how well the query match the entry.
+     * The shortest part of the entry that contain the query as a subsequence is found,
+     * each matching code point give a score, with a bonus when it follow the previous
+     * match or start a word and a penalty for the gap to the previous match.
+     *
+     * @param query query
+     * @param entry entry
+     * @param caseSensitive if false, the entry is matched ignoring case
+     * @return the score, or -1 if the entry do not contain the query as a subsequence
+     */
+    static int score(int[] query, int[] entry, boolean caseSensitive) {
+        if(query.length == 0)
+            return 0;
+        //find the end of the first match
+        int q = 0;
+        int end = 0;
+        while(end < entry.length && q < query.length) {
+            if(equals(query[q], entry[end], caseSensitive))
+                q++;
+            end++;
+        }
+        if(q < query.length)
+            return -1;
+        //go backwards to find the shortest match ending there
+        int start = end;
+        q = query.length;
+        while(q > 0) {
+            start--;
+            if(equals(query[q - 1], entry[start], caseSensitive))
+                q--;
+        }
+
+        int score = 0;
+        int last = -1;
+        q = 0;
+        for(int i = start; i < end && q < query.length; i++) {
+            if(equals(query[q], entry[i], caseSensitive)) {
+                score += MATCH;
+                if(q > 0 && last == i - 1)
+                    score += CONSECUTIVE;
+                else if(q > 0)
+                    score -= Math.min(i - last - 1, MAX_GAP_PENALTY);
+                if(i == 0 || isBoundary(entry[i - 1]))
+                    score += BOUNDARY;
+                last = i;
+                q++;
+            }
+        }
+        return score;
+    }
+
+    static boolean hasUpperCase(int[] query) {
+        for(int c : query)
+            if(Character.isUpperCase(c))
+                return true;
+        return false;
+    }
+
+    private static boolean equals(int q, int c, boolean caseSensitive) {
+        return q == c || (!caseSensitive && q == Character.toLowerCase(c));
+    }
+
+    private static boolean isBoundary(int c) {
+        return !Character.isLetterOrDigit(c);
+    }
+
+    private static boolean startsWith(int[] query, int[] prefix) {
+        if(prefix.length > query.length)
+            return false;
+        for(int i = 0; i < prefix.length; i++)
+            if(query[i] != prefix[i])
+                return false;
+        return true;
+    }
+}
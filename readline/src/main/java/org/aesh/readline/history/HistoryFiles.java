@@ -0,0 +1,184 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+import org.aesh.readline.util.FileAccessPermission;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * File operations shared by the file based histories.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+final class HistoryFiles {
+
+    //how long BATCHED waits before appended entries are forced to disk
+    static final long SYNC_INTERVAL = 1000;
+
+    private HistoryFiles() {
+    }
+
+    interface Content {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Write the content to a temp file in the same directory and rename it over the file.
+     * Readers will either see the old or the new file, never a partial one.
+     *
+     * @param file file to replace
+     * @param permission permissions of the new file, if null the permissions of the old file are kept
+     * @param sync force the content to disk before it is renamed
+     * @param content writes the new content
+     * @throws IOException io
+     */
+    static void replace(File file, FileAccessPermission permission, boolean sync,
+                        Content content) throws IOException {
+        move(writeTemp(file, permission, sync, content), file);
+    }
+
+    /**
+     * Write the content to a temp file in the same directory, to be moved over the file
+     * with {@link #move(Path, File)}.
+     *
+     * @param file file that will be replaced
+     * @param permission permissions of the new file, if null the permissions of the old file are kept
+     * @param sync force the content to disk
+     * @param content writes the new content
+     * @return the temp file
+     * @throws IOException io
+     */
+    static Path writeTemp(File file, FileAccessPermission permission, boolean sync,
+                          Content content) throws IOException {
+        Path target = file.getAbsoluteFile().toPath();
+        Path tmp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+        boolean written = false;
+        try {
+            try (FileOutputStream out = new FileOutputStream(tmp.toFile())) {
+                content.write(out);
+                out.flush();
+                if(sync)
+                    out.getChannel().force(false);
+            }
+            if(permission != null)
+                setPermissions(tmp.toFile(), permission);
+            else if(Files.exists(target))
+                copyPermissions(target, tmp);
+            written = true;
+            return tmp;
+        }
+        finally {
+            if(!written)
+                Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Atomically rename the temp file over the file, the temp file is removed if it fails.
+     *
+     * @param tmp temp file
+     * @param file file to replace
+     * @throws IOException io
+     */
+    static void move(Path tmp, File file) throws IOException {
+        Path target = file.getAbsoluteFile().toPath();
+        try {
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch(AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * @param file file
+     * @return the key identifying the file, null if the file system do not support it
+     * @throws IOException io
+     */
+    static Object fileKey(File file) throws IOException {
+        return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    }
+
+    /**
+     * @param file file
+     * @param fileKey key of the file when it was opened
+     * @return false if the file have been replaced or removed since it was opened
+     * @throws IOException io
+     */
+    static boolean isCurrentFile(File file, Object fileKey) throws IOException {
+        try {
+            //without a file key we can not tell if the file have been replaced
+            return fileKey == null || fileKey.equals(fileKey(file));
+        }
+        catch(NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static void copyPermissions(Path from, Path to) {
+        try {
+            Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+        }
+        catch(UnsupportedOperationException | IOException ignored) {
+            //keep the default permissions of the temp file
+        }
+    }
+
+    static void setPermissions(File file, FileAccessPermission permission) {
+        if (permission != null) {
+            file.setReadable(false, false);
+            file.setReadable(permission.isReadable(), permission.isReadableOwnerOnly());
+            file.setWritable(false, false);
+            file.setWritable(permission.isWritable(), permission.isWritableOwnerOnly());
+            file.setExecutable(false, false);
+            file.setExecutable(permission.isExecutable(), permission.isExecutableOwnerOnly());
+        }
+    }
+
+    /**
+     * @return a single daemon thread executor for background writes and syncs
+     */
+    static ScheduledExecutorService newWriterExecutor() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("Aesh History Writer");
+            //should not block shutdown
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
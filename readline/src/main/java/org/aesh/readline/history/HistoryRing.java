@@ -0,0 +1,188 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded ring of history entries.
+ * When the ring is full the oldest entry is overwritten, and an index of the
+ * entries content is kept to find equal entries without comparing them all.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class HistoryRing {
+
+    private final int maxSize;
+    private int[][] entries;
+    //index of the oldest entry
+    private int head;
+    private int size;
+    private final Map<Key, Key> index = new HashMap<>();
+    private final List<int[]> view = new AbstractList<int[]>() {
+        @Override
+        public int[] get(int index) {
+            return HistoryRing.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    HistoryRing(int maxSize) {
+        this.maxSize = maxSize;
+        entries = new int[Math.min(maxSize, 16)][];
+    }
+
+    /**
+     * Add an entry, if the ring is full the oldest entry is removed
+     *
+     * @param entry entry
+     */
+    void add(int[] entry) {
+        if(maxSize == 0)
+            return;
+        if(size == maxSize) {
+            unindex(entries[head]);
+            entries[head] = entry;
+            head = (head + 1) % entries.length;
+        }
+        else {
+            if(size == entries.length)
+                grow();
+            entries[(head + size) % entries.length] = entry;
+            size++;
+        }
+        Key key = new Key(entry);
+        Key existing = index.putIfAbsent(key, key);
+        if(existing != null)
+            existing.count++;
+    }
+
+    int[] get(int index) {
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: "+index+", size: "+size);
+        return entries[(head + index) % entries.length];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param entry entry
+     * @return an entry with the same content, or null
+     */
+    int[] find(int[] entry) {
+        Key key = index.get(new Key(entry));
+        return key != null ? key.entry : null;
+    }
+
+    /**
+     * @param entry entry
+     * @return the index of the newest entry with the same content, or -1
+     */
+    int lastIndexOf(int[] entry) {
+        if(find(entry) == null)
+            return -1;
+        for(int i = size - 1; i >= 0; i--)
+            if(Arrays.equals(get(i), entry))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Remove the entry at the given index, the entries after it are moved one step back
+     *
+     * @param index index
+     */
+    void remove(int index) {
+        int[] removed = get(index);
+        for(int i = index; i < size - 1; i++)
+            entries[(head + i) % entries.length] = entries[(head + i + 1) % entries.length];
+        entries[(head + size - 1) % entries.length] = null;
+        size--;
+        unindex(removed);
+    }
+
+    void clear() {
+        Arrays.fill(entries, null);
+        head = 0;
+        size = 0;
+        index.clear();
+    }
+
+    /**
+     * @return a read only view of the entries, oldest first
+     */
+    List<int[]> asList() {
+        return view;
+    }
+
+    private void unindex(int[] entry) {
+        Key key = index.get(new Key(entry));
+        if(key != null) {
+            //the key can keep the removed entry since it has the same content as the ones left
+            if(key.count > 1)
+                key.count--;
+            else
+                index.remove(key);
+        }
+    }
+
+    private void grow() {
+        int[][] grown = new int[(int) Math.min(maxSize, entries.length * 2L)][];
+        for(int i = 0; i < size; i++)
+            grown[i] = get(i);
+        entries = grown;
+        head = 0;
+    }
+
+    /**
+     * Hash key for an entry, the hash is computed once.
+     * Also used by {@link FuzzyHistorySearch} to find duplicate entries.
+     */
+    static final class Key {
+        private final int[] entry;
+        private final int hash;
+        private int count = 1;
+
+        Key(int[] entry) {
+            this.entry = entry;
+            this.hash = Arrays.hashCode(entry);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(entry, ((Key) o).entry);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+import org.aesh.readline.util.Parser;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Incremental search over the entries of a History.
+ * The indexes of the entries that match a query are cached, when the query grow
+ * only the matches of the shorter query are checked, and when a char is deleted
+ * the matches of the shorter query are reused.
+ * The cache must be invalidated when entries are added or removed.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class HistorySearch {
+
+    private static final int MAX_CACHED_QUERIES = 64;
+
+    private final History history;
+    //query -> ascending indexes of the entries that contain it
+    private final Map<String, int[]> matches = new HashMap<>();
+
+    public HistorySearch(History history) {
+        this.history = history;
+    }
+
+    /**
+     * Must be called when entries are added to, or removed from the history.
+     */
+    public void invalidate() {
+        matches.clear();
+    }
+
+    /**
+     * @param query query
+     * @param from index to start from
+     * @return the index of the last entry at or before the given index that contain the query, or -1
+     */
+    public int searchReverse(int[] query, int from) {
+        int[] result = matches(query);
+        int pos = Arrays.binarySearch(result, from);
+        if(pos < 0)
+            pos = -(pos + 1) - 1;
+        return pos >= 0 ? result[pos] : -1;
+    }
+
+    /**
+     * @param query query
+     * @param from index to start from
+     * @return the index of the first entry at or after the given index that contain the query, or -1
+     */
+    public int searchForward(int[] query, int from) {
+        int[] result = matches(query);
+        int pos = Arrays.binarySearch(result, from);
+        if(pos < 0)
+            pos = -(pos + 1);
+        return pos < result.length ? result[pos] : -1;
+    }
+
+    /**
+     * @param query query
+     * @return ascending indexes of the entries that contain the query
+     */
+    int[] matches(int[] query) {
+        String key = Parser.fromCodePoints(query);
+        int[] result = matches.get(key);
+        if(result != null)
+            return result;
+
+        //the matches of a shorter query contain all the matches of this query
+        int[] candidates = null;
+        for(int length = query.length - 1; length > 0 && candidates == null; length--)
+            candidates = matches.get(Parser.fromCodePoints(Arrays.copyOf(query, length)));
+
+        int size = candidates != null ? candidates.length : history.size();
+        int[] found = new int[size];
+        int count = 0;
+        for(int i = 0; i < size; i++) {
+            int index = candidates != null ? candidates[i] : i;
+            if(Parser.arrayContains(history.get(index), query))
+                found[count++] = index;
+        }
+        result = Arrays.copyOf(found, count);
+
+        if(matches.size() >= MAX_CACHED_QUERIES)
+            matches.clear();
+        matches.put(key, result);
+        return result;
+    }
+}
@@ -21,24 +21,26 @@ package org.aesh.readline.history;
 
 import org.aesh.readline.util.Parser;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 /**
  * A simple in-memory history implementation
  * By default max size is 500
+ * The entries are kept in a ring, so adding an entry to a full history do not move the other entries.
  *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class InMemoryHistory extends History {
 
-    private final List<int[]> historyList;
+    private final HistoryRing historyList;
+    private boolean eraseDuplicates;
     private int lastId = 0;
     private int[] current;
     private SearchDirection searchDirection = SearchDirection.REVERSE;
     private final int maxSize;
     private int[] lastSearchArgument;
+    private final HistorySearch historySearch = new HistorySearch(this);
 
     public InMemoryHistory() {
         this(500);
@@ -49,7 +51,7 @@ public class InMemoryHistory extends History {
             this.maxSize = Integer.MAX_VALUE;
         else
             this.maxSize = maxSize;
-        historyList = new ArrayList<>();
+        historyList = new HistoryRing(this.maxSize);
         current = new int[]{};
     }
 
@@ -64,24 +66,54 @@ public class InMemoryHistory extends History {
                return;
             }
 
-            if(historyList.size() >= maxSize) {
-                historyList.remove(0);
+            if(eraseDuplicates) {
+                int index = historyList.lastIndexOf(entry);
+                if(index >= 0)
+                    historyList.remove(index);
             }
 
             historyList.add(entry);
+            historySearch.invalidate();
             lastId = size();
+            entryAdded(entry);
         }
     }
 
-    @Override
-    public int[] find(int[] search) {
-        int index = historyList.indexOf(search);
-        if(index >= 0) {
-            return get(index);
+    /**
+     * Called after an entry is added to the history
+     *
+     * @param entry entry
+     */
+    protected void entryAdded(int[] entry) {
+    }
+
+    /**
+     * Remove older entries that are equal to a new entry when it is added,
+     * like HISTCONTROL=erasedups in bash.
+     * Duplicates already in the history are removed when this is enabled.
+     *
+     * @param eraseDuplicates erase duplicates
+     */
+    public void setEraseDuplicates(boolean eraseDuplicates) {
+        this.eraseDuplicates = eraseDuplicates;
+        if(eraseDuplicates) {
+            for(int i = historyList.size() - 1; i >= 0; i--) {
+                int index = historyList.lastIndexOf(historyList.get(i));
+                if(index != i)
+                    historyList.remove(i);
+            }
+            historySearch.invalidate();
+            lastId = size();
         }
-        else
-            return null;
+    }
 
+    public boolean isEraseDuplicates() {
+        return eraseDuplicates;
+    }
+
+    @Override
+    public int[] find(int[] search) {
+        return historyList.find(search);
     }
 
     @Override
@@ -151,12 +183,11 @@ public class InMemoryHistory extends History {
         else if(lastSearchArgument != null && Arrays.equals(lastSearchArgument, search) && lastId > 0)
             lastId--;
 
-        for(; lastId >= 0; lastId--)
-            if(Parser.arrayContains(historyList.get(lastId), search)) {
-                lastSearchArgument = search;
-                return get(lastId);
-            }
-
+        lastId = historySearch.searchReverse(search, lastId);
+        if(lastId >= 0) {
+            lastSearchArgument = search;
+            return get(lastId);
+        }
         return null;
     }
 
@@ -167,13 +198,13 @@ public class InMemoryHistory extends History {
                 Arrays.equals(lastSearchArgument, search))
           lastId++;
 
-        for(; lastId < size(); lastId++ ) {
-            if(Parser.arrayContains(historyList.get(lastId), search)) {
-            //if(historyList.get(lastId).contains(search)) {
-                lastSearchArgument = search;
-                return get(lastId);
-            }
+        int index = historySearch.searchForward(search, lastId);
+        if(index >= 0) {
+            lastId = index;
+            lastSearchArgument = search;
+            return get(lastId);
         }
+        lastId = size();
         return null;
     }
 
@@ -189,13 +220,14 @@ public class InMemoryHistory extends History {
 
     @Override
     public List<int[]> getAll() {
-        return historyList;
+        return historyList.asList();
     }
 
     @Override
     public void clear() {
         lastId = 0;
         historyList.clear();
+        historySearch.invalidate();
         current = new int[]{};
     }
 
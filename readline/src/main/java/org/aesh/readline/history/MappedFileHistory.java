@@ -0,0 +1,529 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.history;
+
+import org.aesh.readline.util.FileAccessPermission;
+import org.aesh.readline.util.LoggerUtil;
+import org.aesh.readline.util.Parser;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * History backed by a memory mapped UTF-8 history file.
+ * At init only the offsets of the lines are read, an entry is decoded when it is fetched.
+ * New entries are appended to the file when they are pushed, so several processes can share
+ * the same history file. Appends and compaction are done while the file is locked.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class MappedFileHistory extends History {
+
+    private static final Logger LOGGER = LoggerUtil.getLogger(MappedFileHistory.class.getName());
+
+    private final File historyFile;
+    private final FileAccessPermission historyFilePermission;
+    private final boolean logging;
+    private final SyncPolicy syncPolicy;
+    private final int maxSize;
+
+    private MappedByteBuffer mapped;
+    //start and end offset of each mapped entry
+    private int[] starts = new int[0];
+    private int[] ends = new int[0];
+    private int mappedSize;
+    //entries pushed after the file was mapped
+    private final List<int[]> pushed = new ArrayList<>();
+    //index of the first entry that is in the history, older entries are evicted
+    private int first;
+    //number of entries in the file
+    private int fileSize;
+    //open while appending, reopened if another process have replaced the file
+    private FileChannel channel;
+    private Object fileKey;
+    //entries before this offset in the file were cleared
+    private long clearedLength;
+    private ScheduledExecutorService executor;
+    private boolean syncScheduled;
+
+    private int lastId = 0;
+    private int[] current = new int[]{};
+    private SearchDirection searchDirection = SearchDirection.REVERSE;
+    private int[] lastSearchArgument;
+    private final HistorySearch historySearch = new HistorySearch(this);
+
+    public MappedFileHistory(File file, int maxSize) {
+        this(file, maxSize, null, false, SyncPolicy.NEVER);
+    }
+
+    public MappedFileHistory(File file, int maxSize, FileAccessPermission historyFilePermission,
+                             boolean logging, SyncPolicy syncPolicy) {
+        if(maxSize == -1)
+            this.maxSize = Integer.MAX_VALUE;
+        else
+            this.maxSize = maxSize;
+        this.historyFile = file;
+        this.historyFilePermission = historyFilePermission;
+        this.logging = logging;
+        this.syncPolicy = syncPolicy;
+        mapFile();
+        lastId = size();
+    }
+
+    private void mapFile() {
+        if(!historyFile.isFile())
+            return;
+        try(FileChannel channel = FileChannel.open(historyFile.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if(length == 0)
+                return;
+            //a mapping is limited to 2GB, only the end of larger files is used
+            long position = Math.max(0, length - Integer.MAX_VALUE);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length - position);
+            indexLines(position > 0);
+        }
+        catch(IOException e) {
+            if(logging)
+                LOGGER.log(Level.WARNING, "Failed to read history file", e);
+        }
+    }
+
+    private void indexLines(boolean skipFirstLine) {
+        int limit = mapped.limit();
+        int[] lineStarts = new int[1024];
+        int[] lineEnds = new int[1024];
+        int count = 0;
+        int start = 0;
+        if(skipFirstLine) {
+            while(start < limit && mapped.get(start) != '\n')
+                start++;
+            start++;
+            //make sure the partial line is removed when the file is rewritten
+            fileSize++;
+        }
+        for(int i = start; i <= limit; i++) {
+            if(i == limit || mapped.get(i) == '\n') {
+                int end = i;
+                if(end > start && mapped.get(end - 1) == '\r')
+                    end--;
+                if(end > start) {
+                    if(count == lineStarts.length) {
+                        lineStarts = Arrays.copyOf(lineStarts, count * 2);
+                        lineEnds = Arrays.copyOf(lineEnds, count * 2);
+                    }
+                    lineStarts[count] = start;
+                    lineEnds[count] = end;
+                    count++;
+                }
+                start = i + 1;
+            }
+        }
+        starts = lineStarts;
+        ends = lineEnds;
+        mappedSize = count;
+        fileSize += count;
+        first = Math.max(0, count - maxSize);
+    }
+
+    private byte[] bytes(int index) {
+        byte[] bytes = new byte[ends[index] - starts[index]];
+        MappedByteBuffer buffer = mapped;
+        for(int i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(starts[index] + i);
+        return bytes;
+    }
+
+    private int[] decode(int index) {
+        return Parser.toCodePoints(new String(bytes(index), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void push(int[] entry) {
+        if(isEnabled() && entry != null && !Parser.isTrimmedArrayEmpty(entry)) {
+            // Don't add repeated lines to the history
+            if(size() > 0 && Arrays.equals(get(size() - 1), entry)) {
+                lastId = size();
+                return;
+            }
+            if(size() >= maxSize)
+                evict();
+            pushed.add(entry);
+            historySearch.invalidate();
+            lastId = size();
+            append(entry);
+        }
+    }
+
+    private void evict() {
+        first++;
+        //drop the pushed entries that are evicted when they take up half of the list
+        int evicted = first - mappedSize;
+        if(evicted > 0 && evicted >= pushed.size() / 2) {
+            pushed.subList(0, evicted).clear();
+            first = mappedSize;
+        }
+    }
+
+    private synchronized void append(int[] entry) {
+        byte[] bytes = (Parser.fromCodePoints(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            FileLock lock = lockFile();
+            try {
+                long length = channel.size();
+                ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 1);
+                //do not join the entry with an unterminated last line
+                if(length > 0 && !endsWithNewLine(length))
+                    buffer.put((byte) '\n');
+                buffer.put(bytes);
+                buffer.flip();
+                while(buffer.hasRemaining())
+                    length += channel.write(buffer, length);
+            }
+            finally {
+                lock.release();
+            }
+            fileSize++;
+            if(syncPolicy == SyncPolicy.ALWAYS)
+                channel.force(false);
+            else if(syncPolicy == SyncPolicy.BATCHED && !syncScheduled) {
+                syncScheduled = true;
+                executor().schedule(this::sync, HistoryFiles.SYNC_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+        }
+        catch(IOException e) {
+            if(logging)
+                LOGGER.log(Level.WARNING, "Failed to append to history file", e);
+        }
+    }
+
+    private boolean endsWithNewLine(long length) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, length - 1);
+        return last.get(0) == '\n';
+    }
+
+    /**
+     * Lock the history file. If another process have replaced the file since it was
+     * opened, it is opened again.
+     */
+    private FileLock lockFile() throws IOException {
+        while(true) {
+            if(channel == null)
+                openChannel();
+            FileLock lock = channel.lock();
+            if(HistoryFiles.isCurrentFile(historyFile, fileKey))
+                return lock;
+            lock.release();
+            closeChannel();
+            //the offset is not valid in the new file
+            clearedLength = 0;
+        }
+    }
+
+    private void openChannel() throws IOException {
+        boolean exists = historyFile.exists();
+        channel = FileChannel.open(historyFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        fileKey = HistoryFiles.fileKey(historyFile);
+        if(!exists)
+            HistoryFiles.setPermissions(historyFile, historyFilePermission);
+    }
+
+    private void closeChannel() throws IOException {
+        if(channel != null) {
+            FileChannel c = channel;
+            channel = null;
+            try {
+                if(syncPolicy != SyncPolicy.NEVER)
+                    c.force(false);
+            }
+            finally {
+                c.close();
+            }
+        }
+    }
+
+    private ScheduledExecutorService executor() {
+        if(executor == null)
+            executor = HistoryFiles.newWriterExecutor();
+        return executor;
+    }
+
+    private synchronized void sync() {
+        syncScheduled = false;
+        try {
+            if(channel != null)
+                channel.force(false);
+        }
+        catch(IOException e) {
+            if(logging)
+                LOGGER.log(Level.WARNING, "Failed to sync history file", e);
+        }
+    }
+
+    @Override
+    public int[] find(int[] search) {
+        for(int i = size() - 1; i >= 0; i--) {
+            int[] entry = get(i);
+            if(Arrays.equals(entry, search))
+                return entry;
+        }
+        return null;
+    }
+
+    @Override
+    public int[] get(int index) {
+        if(index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: "+index+", size: "+size());
+        int position = first + index;
+        if(position < mappedSize)
+            return decode(position);
+        return pushed.get(position - mappedSize);
+    }
+
+    @Override
+    public int size() {
+        return mappedSize + pushed.size() - first;
+    }
+
+    @Override
+    public void setSearchDirection(SearchDirection direction) {
+        if(searchDirection != direction) {
+            searchDirection = direction;
+            lastSearchArgument = null;
+            lastId = 0;
+        }
+    }
+
+    @Override
+    public SearchDirection getSearchDirection() {
+        return searchDirection;
+    }
+
+    @Override
+    public int[] getPreviousFetch() {
+        if(size() < 1)
+            return new int[]{};
+
+        if(lastId > 0)
+            return get(--lastId);
+        else {
+            return get(lastId);
+        }
+    }
+
+    @Override
+    public int[] getNextFetch() {
+        if(size() < 1)
+            return null;
+
+        if(lastId < size()-1)
+            return get(++lastId);
+        else if(lastId == size()-1) {
+            lastId++;
+            return getCurrent();
+        }
+        else
+            return getCurrent();
+    }
+
+    @Override
+    public int[] search(int[] search) {
+        if(searchDirection == SearchDirection.REVERSE)
+            return searchReverse(search);
+        else
+            return searchForward(search);
+    }
+
+    private int[] searchReverse(int[] search) {
+        if(size() == 0)
+            return new int[] {};
+        else if(lastId <= 0 || lastId > size()-1)
+            lastId = size()-1;
+        else if(lastSearchArgument != null && Arrays.equals(lastSearchArgument, search) && lastId > 0)
+            lastId--;
+
+        lastId = historySearch.searchReverse(search, lastId);
+        if(lastId >= 0) {
+            lastSearchArgument = search;
+            return get(lastId);
+        }
+        return null;
+    }
+
+    private int[] searchForward(int[] search) {
+        if(lastId >= size())
+            lastId = 0;
+        else if(lastSearchArgument != null &&
+                Arrays.equals(lastSearchArgument, search))
+          lastId++;
+
+        int index = historySearch.searchForward(search, lastId);
+        if(index >= 0) {
+            lastId = index;
+            lastSearchArgument = search;
+            return get(lastId);
+        }
+        lastId = size();
+        return null;
+    }
+
+    @Override
+    public void setCurrent(int[] line) {
+        this.current = line;
+    }
+
+    @Override
+    public int[] getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return a view of the history, the entries are decoded when they are read
+     */
+    @Override
+    public List<int[]> getAll() {
+        return new AbstractList<int[]>() {
+            @Override
+            public int[] get(int index) {
+                return MappedFileHistory.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return MappedFileHistory.this.size();
+            }
+        };
+    }
+
+    @Override
+    public void clear() {
+        clearedLength = historyFile.length();
+        lastId = 0;
+        pushed.clear();
+        first = mappedSize;
+        historySearch.invalidate();
+        current = new int[]{};
+    }
+
+    /**
+     * Close the history file, if it contain old entries it is rewritten with
+     * only the last entries.
+     */
+    @Override
+    public synchronized void stop() {
+        try {
+            if(fileSize > size())
+                compact();
+        }
+        catch(IOException e) {
+            if(logging)
+                LOGGER.log(Level.WARNING, "Failed when trying to write history file", e);
+        }
+        finally {
+            try {
+                closeChannel();
+            }
+            catch(IOException e) {
+                if(logging)
+                    LOGGER.log(Level.WARNING, "Failed to close history file", e);
+            }
+        }
+        if(executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Write the last entries in the file to a temp file and rename it to the history file.
+     * The file is locked and read again, so entries that other processes have appended
+     * are kept. The entries are copied without being decoded.
+     */
+    private void compact() throws IOException {
+        FileLock lock = lockFile();
+        try {
+            long length = channel.size();
+            long limitStart = length - Integer.MAX_VALUE;
+            //a mapping is limited to 2GB, the first line is partial if the file is larger
+            boolean partialFirstLine = limitStart > 0 && limitStart > clearedLength;
+            long start = Math.max(Math.max(0, limitStart), Math.min(clearedLength, length));
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, start, length - start);
+
+            //find the last entries, starting at the end of the file
+            int[] lineStarts = new int[Math.min(maxSize, 1024)];
+            int[] lineEnds = new int[lineStarts.length];
+            int count = 0;
+            int end = data.limit();
+            while(end >= 0 && count < maxSize) {
+                int begin = end;
+                while(begin > 0 && data.get(begin - 1) != '\n')
+                    begin--;
+                if(begin == 0 && partialFirstLine)
+                    break;
+                int lineEnd = end > begin && data.get(end - 1) == '\r' ? end - 1 : end;
+                if(lineEnd > begin) {
+                    if(count == lineStarts.length) {
+                        lineStarts = Arrays.copyOf(lineStarts, count * 2);
+                        lineEnds = Arrays.copyOf(lineEnds, count * 2);
+                    }
+                    lineStarts[count] = begin;
+                    lineEnds[count] = lineEnd;
+                    count++;
+                }
+                end = begin - 1;
+            }
+
+            final int lines = count;
+            final int[] entryStarts = lineStarts;
+            final int[] entryEnds = lineEnds;
+            HistoryFiles.replace(historyFile, historyFilePermission, syncPolicy != SyncPolicy.NEVER, output -> {
+                OutputStream buffered = new BufferedOutputStream(output);
+                for(int i = lines - 1; i >= 0; i--) {
+                    for(int j = entryStarts[i]; j < entryEnds[i]; j++)
+                        buffered.write(data.get(j));
+                    buffered.write('\n');
+                }
+                buffered.flush();
+            });
+            fileSize = lines;
+            clearedLength = 0;
+        }
+        finally {
+            lock.release();
+        }
+    }
+}
@@ -19,15 +19,10 @@
  */
 package org.aesh.readline.terminal;
 
-import org.aesh.terminal.utils.InfoCmp;
-import org.aesh.terminal.tty.Capability;
 import org.aesh.terminal.utils.Config;
 import org.aesh.readline.util.LoggerUtil;
+import org.aesh.terminal.utils.TermInfo;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,26 +49,12 @@ public class DeviceBuilder {
     public TerminalDevice build() {
         if(name == null)
             name = Config.isOSPOSIXCompatible() ? "ansi" : "windows";
-        String data = getCapabilityFromType();
-        TerminalDevice device = new TerminalDevice(name);
-
-        if(data != null) {
-            Set<Capability> bools = new HashSet<>();
-            Map<Capability, Integer> ints = new HashMap<>();
-            Map<Capability, String> strings = new HashMap<>();
-
-            InfoCmp.parseInfoCmp(data, bools,ints, strings);
-            device.addAllCapabilityBooleans(bools);
-            device.addAllCapabilityInts(ints);
-            device.addAllCapabilityStrings(strings);
-        }
-
-        return device;
+        return new TerminalDevice(name, getTermInfo());
     }
 
-    private String getCapabilityFromType() {
+    private TermInfo getTermInfo() {
         try {
-            return InfoCmp.getDefaultInfoCmp(name);
+            return TermInfo.forType(name);
         }
         catch (Exception e) {
             LOGGER.log(Level.WARNING, "Unable to retrieve infocmp for type " + name, e);
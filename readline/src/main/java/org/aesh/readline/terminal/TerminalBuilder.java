@@ -22,6 +22,7 @@ package org.aesh.readline.terminal;
 import org.aesh.readline.terminal.impl.CygwinPty;
 import org.aesh.readline.terminal.impl.ExecPty;
 import org.aesh.readline.terminal.impl.ExternalTerminal;
+import org.aesh.readline.terminal.impl.NativePty;
 import org.aesh.readline.terminal.impl.PosixSysTerminal;
 import org.aesh.readline.terminal.impl.Pty;
 import org.aesh.readline.terminal.impl.WinExternalTerminal;
@@ -57,6 +58,7 @@ public final class TerminalBuilder {
     private String type;
     private Boolean system;
     private boolean nativeSignals = true;
+    private boolean nativePty = true;
 
     private TerminalBuilder() {
     }
@@ -86,6 +88,14 @@ public final class TerminalBuilder {
         return apply(c -> c.nativeSignals = nativeSignals);
     }
 
+    /**
+     * Use native termios calls to read and change the terminal attributes and size
+     * when they are available, instead of running stty. Default is true.
+     */
+    public TerminalBuilder nativePty(boolean nativePty) {
+        return apply(c -> c.nativePty = nativePty);
+    }
+
     public TerminalBuilder type(String type) {
         return apply(c -> c.type = type);
     }
@@ -124,11 +134,21 @@ public final class TerminalBuilder {
                     type = System.getenv("TERM");
                 }
                 Pty pty = null;
-                try {
-                    pty = ExecPty.current();
+                if (nativePty && NativePty.isSupported()) {
+                    try {
+                        pty = NativePty.current();
+                    }
+                    catch (IOException e) {
+                        LOGGER.log(Level.FINE, "Failed to get a native tty", e);
+                    }
                 }
-                catch (IOException e) {
-                    LOGGER.log(Level.FINE, "Failed to get a local tty", e);
+                if (pty == null) {
+                    try {
+                        pty = ExecPty.current();
+                    }
+                    catch (IOException e) {
+                        LOGGER.log(Level.FINE, "Failed to get a local tty", e);
+                    }
                 }
                 if (pty != null) {
                     return new PosixSysTerminal(name, type, pty, nativeSignals);
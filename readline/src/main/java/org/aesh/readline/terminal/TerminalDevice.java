@@ -21,6 +21,8 @@ package org.aesh.readline.terminal;
 
 import org.aesh.terminal.BaseDevice;
 import org.aesh.terminal.tty.Capability;
+import org.aesh.terminal.utils.Curses;
+import org.aesh.terminal.utils.TermInfo;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -30,17 +32,26 @@ import java.util.Set;
 /**
  * Contains info regarding the current device connected to readline
  *
+ * The device is backed by a shared {@link TermInfo}, capabilities added to
+ * the device override the ones from the terminfo description.
+ *
  * @author Ståle W. Pedersen <stale.pedersen@jboss.org>
  */
 public class TerminalDevice extends BaseDevice {
 
     private String type;
+    private final TermInfo termInfo;
     private final Set<Capability> bools = new HashSet<>();
     private final Map<Capability, Integer> ints = new HashMap<>();
     private final Map<Capability, String> strings = new HashMap<>();
 
     public TerminalDevice(String type) {
+        this(type, null);
+    }
+
+    public TerminalDevice(String type, TermInfo termInfo) {
         this.type = type;
+        this.termInfo = termInfo;
     }
 
     @Override
@@ -74,18 +85,41 @@ public class TerminalDevice extends BaseDevice {
 
     @Override
     public boolean getBooleanCapability(Capability capability) {
-        return bools.contains(capability);
+        return bools.contains(capability) ||
+                (termInfo != null && termInfo.getBooleanCapability(capability));
     }
 
     @Override
     public Integer getNumericCapability(Capability capability) {
-        return ints.get(capability);
+        Integer value = ints.get(capability);
+        if(value == null && termInfo != null)
+            return termInfo.getNumericCapability(capability);
+        return value;
     }
 
     @Override
     public String getStringCapability(Capability capability) {
-        return strings.get(capability);
+        String value = strings.get(capability);
+        if(value == null && termInfo != null)
+            return termInfo.getStringCapability(capability);
+        return value;
+    }
+
+    @Override
+    protected int[] getCompiledCapability(Capability capability) {
+        if(termInfo != null && !strings.containsKey(capability))
+            return termInfo.getStringCapabilityAsInts(capability);
+        return super.getCompiledCapability(capability);
     }
 
+    @Override
+    protected Curses.Template getTemplate(Capability capability) {
+        if(termInfo != null && !strings.containsKey(capability)) {
+            Curses.Template template = termInfo.getTemplate(capability);
+            if(template != null)
+                return template;
+        }
+        return super.getTemplate(capability);
+    }
 
 }
@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.terminal.impl;
+
+import org.aesh.readline.util.LoggerUtil;
+import org.aesh.terminal.Attributes;
+import org.aesh.terminal.tty.Size;
+import org.aesh.terminal.utils.OSUtils;
+import org.fusesource.jansi.internal.CLibrary;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pty that read and write the terminal attributes and size of stdin through the native
+ * termios functions in Jansi's CLibrary instead of forking stty.
+ * If a native call fails the stty based implementation in {@link ExecPty} is used.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class NativePty extends ExecPty {
+
+    private static final Logger LOGGER = LoggerUtil.getLogger(NativePty.class.getName());
+
+    private static final int STDIN = 0;
+
+    private final TermiosMapping mapping;
+
+    public static boolean isSupported() {
+        if(!OSUtils.IS_LINUX && !OSUtils.IS_OSX)
+            return false;
+        try {
+            return CLibrary.LOADED && CLibrary.HAVE_ISATTY;
+        }
+        catch(Throwable t) {
+            //jansi is not on the class path or the native library could not be loaded
+            LOGGER.log(Level.FINE, "Native terminal access is not available", t);
+            return false;
+        }
+    }
+
+    public static Pty current() throws IOException {
+        if(!isSupported())
+            throw new IOException("Native terminal access is not supported");
+        if(CLibrary.isatty(STDIN) != 1)
+            throw new IOException("Not a tty");
+        String name = CLibrary.HAVE_TTYNAME ? CLibrary.ttyname(STDIN) : null;
+        LOGGER.log(Level.FINE, "native pty: "+name);
+        return new NativePty(name != null ? name : "/dev/tty",
+                OSUtils.IS_OSX ? TermiosMapping.OSX : TermiosMapping.LINUX);
+    }
+
+    private NativePty(String name, TermiosMapping mapping) {
+        super(name);
+        this.mapping = mapping;
+    }
+
+    @Override
+    public Attributes getAttr() throws IOException {
+        CLibrary.Termios termios = new CLibrary.Termios();
+        if(CLibrary.tcgetattr(STDIN, termios) != 0) {
+            LOGGER.log(Level.FINE, "tcgetattr failed, using stty");
+            return super.getAttr();
+        }
+        return mapping.toAttributes(termios);
+    }
+
+    @Override
+    public void setAttr(Attributes attr) throws IOException {
+        CLibrary.Termios termios = new CLibrary.Termios();
+        if(CLibrary.tcgetattr(STDIN, termios) == 0) {
+            mapping.update(termios, attr);
+            if(CLibrary.tcsetattr(STDIN, CLibrary.TCSANOW, termios) == 0)
+                return;
+        }
+        LOGGER.log(Level.FINE, "tcsetattr failed, using stty");
+        super.setAttr(attr);
+    }
+
+    @Override
+    public Size getSize() throws IOException {
+        CLibrary.WinSize size = new CLibrary.WinSize();
+        if(CLibrary.ioctl(STDIN, CLibrary.TIOCGWINSZ, size) != 0) {
+            LOGGER.log(Level.FINE, "ioctl TIOCGWINSZ failed, using stty");
+            return super.getSize();
+        }
+        return new Size(size.ws_col, size.ws_row);
+    }
+}
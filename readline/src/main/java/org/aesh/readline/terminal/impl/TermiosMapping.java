@@ -0,0 +1,285 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.terminal.impl;
+
+import org.aesh.terminal.Attributes;
+import org.fusesource.jansi.internal.CLibrary;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Translate between the native termios structure and {@link Attributes}.
+ * The flag values and control char indexes are taken from the termios.h headers
+ * on Linux and macOS.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+final class TermiosMapping {
+
+    static final TermiosMapping LINUX = linux();
+    static final TermiosMapping OSX = osx();
+
+    private final Map<Attributes.InputFlag, Long> inputFlags = new EnumMap<>(Attributes.InputFlag.class);
+    private final Map<Attributes.OutputFlag, Long> outputFlags = new EnumMap<>(Attributes.OutputFlag.class);
+    private final Map<Attributes.ControlFlag, Long> controlFlags = new EnumMap<>(Attributes.ControlFlag.class);
+    //CS5-CS8 are values of the CSIZE field and not single bits
+    private final Map<Attributes.ControlFlag, Long> charSizes = new EnumMap<>(Attributes.ControlFlag.class);
+    private final Map<Attributes.LocalFlag, Long> localFlags = new EnumMap<>(Attributes.LocalFlag.class);
+    private final Map<Attributes.ControlChar, Integer> controlChars = new EnumMap<>(Attributes.ControlChar.class);
+    private long charSizeMask;
+    //value of a disabled control char
+    private int disabled;
+
+    private TermiosMapping() {
+    }
+
+    Attributes toAttributes(CLibrary.Termios termios) {
+        Attributes attributes = new Attributes();
+        inputFlags.forEach((flag, value) -> attributes.setInputFlag(flag, isSet(termios.c_iflag, value)));
+        outputFlags.forEach((flag, value) -> attributes.setOutputFlag(flag, isSet(termios.c_oflag, value)));
+        controlFlags.forEach((flag, value) -> attributes.setControlFlag(flag, isSet(termios.c_cflag, value)));
+        charSizes.forEach((flag, value) -> attributes.setControlFlag(flag, (termios.c_cflag & charSizeMask) == value));
+        localFlags.forEach((flag, value) -> attributes.setLocalFlag(flag, isSet(termios.c_lflag, value)));
+        controlChars.forEach((cc, index) -> {
+            int value = termios.c_cc[index] & 0xFF;
+            if(value == disabled && isCharacter(cc))
+                value = -1;
+            attributes.setControlChar(cc, value);
+        });
+        return attributes;
+    }
+
+    /**
+     * Update the termios structure with the values from attributes that differ from
+     * what it currently contain. Bits that are not known by Attributes are left as is.
+     */
+    void update(CLibrary.Termios termios, Attributes attributes) {
+        Attributes current = toAttributes(termios);
+        termios.c_iflag = update(termios.c_iflag, inputFlags, attributes::getInputFlag, current::getInputFlag);
+        termios.c_oflag = update(termios.c_oflag, outputFlags, attributes::getOutputFlag, current::getOutputFlag);
+        termios.c_cflag = update(termios.c_cflag, controlFlags, attributes::getControlFlag, current::getControlFlag);
+        termios.c_lflag = update(termios.c_lflag, localFlags, attributes::getLocalFlag, current::getLocalFlag);
+        for(Map.Entry<Attributes.ControlFlag, Long> entry : charSizes.entrySet()) {
+            if(attributes.getControlFlag(entry.getKey()) && !current.getControlFlag(entry.getKey()))
+                termios.c_cflag = (termios.c_cflag & ~charSizeMask) | entry.getValue();
+        }
+        controlChars.forEach((cc, index) -> {
+            int value = attributes.getControlChar(cc);
+            if(value >= 0 && value != current.getControlChar(cc)) {
+                if(value == 0 && isCharacter(cc))
+                    value = disabled;
+                termios.c_cc[index] = (byte) value;
+            }
+        });
+    }
+
+    private static <T extends Enum<T>> long update(long flags, Map<T, Long> values,
+                                                   Predicate<T> wanted, Predicate<T> current) {
+        for(Map.Entry<T, Long> entry : values.entrySet()) {
+            boolean set = wanted.test(entry.getKey());
+            if(set != current.test(entry.getKey()))
+                flags = set ? flags | entry.getValue() : flags & ~entry.getValue();
+        }
+        return flags;
+    }
+
+    private static boolean isSet(long flags, long value) {
+        return (flags & value) != 0;
+    }
+
+    private static boolean isCharacter(Attributes.ControlChar cc) {
+        return cc != Attributes.ControlChar.VMIN && cc != Attributes.ControlChar.VTIME;
+    }
+
+    private static TermiosMapping linux() {
+        TermiosMapping m = new TermiosMapping();
+        m.inputFlags.put(Attributes.InputFlag.IGNBRK, 0000001L);
+        m.inputFlags.put(Attributes.InputFlag.BRKINT, 0000002L);
+        m.inputFlags.put(Attributes.InputFlag.IGNPAR, 0000004L);
+        m.inputFlags.put(Attributes.InputFlag.PARMRK, 0000010L);
+        m.inputFlags.put(Attributes.InputFlag.INPCK, 0000020L);
+        m.inputFlags.put(Attributes.InputFlag.ISTRIP, 0000040L);
+        m.inputFlags.put(Attributes.InputFlag.INLCR, 0000100L);
+        m.inputFlags.put(Attributes.InputFlag.IGNCR, 0000200L);
+        m.inputFlags.put(Attributes.InputFlag.ICRNL, 0000400L);
+        m.inputFlags.put(Attributes.InputFlag.IXON, 0002000L);
+        m.inputFlags.put(Attributes.InputFlag.IXANY, 0004000L);
+        m.inputFlags.put(Attributes.InputFlag.IXOFF, 0010000L);
+        m.inputFlags.put(Attributes.InputFlag.IMAXBEL, 0020000L);
+        m.inputFlags.put(Attributes.InputFlag.IUTF8, 0040000L);
+
+        m.outputFlags.put(Attributes.OutputFlag.OPOST, 0000001L);
+        m.outputFlags.put(Attributes.OutputFlag.ONLCR, 0000004L);
+        m.outputFlags.put(Attributes.OutputFlag.OCRNL, 0000010L);
+        m.outputFlags.put(Attributes.OutputFlag.ONOCR, 0000020L);
+        m.outputFlags.put(Attributes.OutputFlag.ONLRET, 0000040L);
+        m.outputFlags.put(Attributes.OutputFlag.OFILL, 0000100L);
+        m.outputFlags.put(Attributes.OutputFlag.OFDEL, 0000200L);
+        m.outputFlags.put(Attributes.OutputFlag.NLDLY, 0000400L);
+        m.outputFlags.put(Attributes.OutputFlag.CRDLY, 0003000L);
+        m.outputFlags.put(Attributes.OutputFlag.TABDLY, 0014000L);
+        m.outputFlags.put(Attributes.OutputFlag.BSDLY, 0020000L);
+        m.outputFlags.put(Attributes.OutputFlag.VTDLY, 0040000L);
+        m.outputFlags.put(Attributes.OutputFlag.FFDLY, 0100000L);
+
+        m.charSizeMask = 0000060L;
+        m.charSizes.put(Attributes.ControlFlag.CS5, 0000000L);
+        m.charSizes.put(Attributes.ControlFlag.CS6, 0000020L);
+        m.charSizes.put(Attributes.ControlFlag.CS7, 0000040L);
+        m.charSizes.put(Attributes.ControlFlag.CS8, 0000060L);
+        m.controlFlags.put(Attributes.ControlFlag.CSTOPB, 0000100L);
+        m.controlFlags.put(Attributes.ControlFlag.CREAD, 0000200L);
+        m.controlFlags.put(Attributes.ControlFlag.PARENB, 0000400L);
+        m.controlFlags.put(Attributes.ControlFlag.PARODD, 0001000L);
+        m.controlFlags.put(Attributes.ControlFlag.HUPCL, 0002000L);
+        m.controlFlags.put(Attributes.ControlFlag.CLOCAL, 0004000L);
+        //CRTSCTS
+        m.controlFlags.put(Attributes.ControlFlag.CCTS_OFLOW, 020000000000L);
+        m.controlFlags.put(Attributes.ControlFlag.CRTS_IFLOW, 020000000000L);
+
+        m.localFlags.put(Attributes.LocalFlag.ISIG, 0000001L);
+        m.localFlags.put(Attributes.LocalFlag.ICANON, 0000002L);
+        m.localFlags.put(Attributes.LocalFlag.ECHO, 0000010L);
+        m.localFlags.put(Attributes.LocalFlag.ECHOE, 0000020L);
+        m.localFlags.put(Attributes.LocalFlag.ECHOK, 0000040L);
+        m.localFlags.put(Attributes.LocalFlag.ECHONL, 0000100L);
+        m.localFlags.put(Attributes.LocalFlag.NOFLSH, 0000200L);
+        m.localFlags.put(Attributes.LocalFlag.TOSTOP, 0000400L);
+        m.localFlags.put(Attributes.LocalFlag.ECHOCTL, 0001000L);
+        m.localFlags.put(Attributes.LocalFlag.ECHOPRT, 0002000L);
+        m.localFlags.put(Attributes.LocalFlag.ECHOKE, 0004000L);
+        m.localFlags.put(Attributes.LocalFlag.FLUSHO, 0010000L);
+        m.localFlags.put(Attributes.LocalFlag.PENDIN, 0040000L);
+        m.localFlags.put(Attributes.LocalFlag.IEXTEN, 0100000L);
+        m.localFlags.put(Attributes.LocalFlag.EXTPROC, 0200000L);
+
+        m.controlChars.put(Attributes.ControlChar.VINTR, 0);
+        m.controlChars.put(Attributes.ControlChar.VQUIT, 1);
+        m.controlChars.put(Attributes.ControlChar.VERASE, 2);
+        m.controlChars.put(Attributes.ControlChar.VKILL, 3);
+        m.controlChars.put(Attributes.ControlChar.VEOF, 4);
+        m.controlChars.put(Attributes.ControlChar.VTIME, 5);
+        m.controlChars.put(Attributes.ControlChar.VMIN, 6);
+        m.controlChars.put(Attributes.ControlChar.VSTART, 8);
+        m.controlChars.put(Attributes.ControlChar.VSTOP, 9);
+        m.controlChars.put(Attributes.ControlChar.VSUSP, 10);
+        m.controlChars.put(Attributes.ControlChar.VEOL, 11);
+        m.controlChars.put(Attributes.ControlChar.VREPRINT, 12);
+        m.controlChars.put(Attributes.ControlChar.VDISCARD, 13);
+        m.controlChars.put(Attributes.ControlChar.VWERASE, 14);
+        m.controlChars.put(Attributes.ControlChar.VLNEXT, 15);
+        m.controlChars.put(Attributes.ControlChar.VEOL2, 16);
+        m.disabled = 0;
+        return m;
+    }
+
+    private static TermiosMapping osx() {
+        TermiosMapping m = new TermiosMapping();
+        m.inputFlags.put(Attributes.InputFlag.IGNBRK, 0x00000001L);
+        m.inputFlags.put(Attributes.InputFlag.BRKINT, 0x00000002L);
+        m.inputFlags.put(Attributes.InputFlag.IGNPAR, 0x00000004L);
+        m.inputFlags.put(Attributes.InputFlag.PARMRK, 0x00000008L);
+        m.inputFlags.put(Attributes.InputFlag.INPCK, 0x00000010L);
+        m.inputFlags.put(Attributes.InputFlag.ISTRIP, 0x00000020L);
+        m.inputFlags.put(Attributes.InputFlag.INLCR, 0x00000040L);
+        m.inputFlags.put(Attributes.InputFlag.IGNCR, 0x00000080L);
+        m.inputFlags.put(Attributes.InputFlag.ICRNL, 0x00000100L);
+        m.inputFlags.put(Attributes.InputFlag.IXON, 0x00000200L);
+        m.inputFlags.put(Attributes.InputFlag.IXOFF, 0x00000400L);
+        m.inputFlags.put(Attributes.InputFlag.IXANY, 0x00000800L);
+        m.inputFlags.put(Attributes.InputFlag.IMAXBEL, 0x00002000L);
+        m.inputFlags.put(Attributes.InputFlag.IUTF8, 0x00004000L);
+
+        m.outputFlags.put(Attributes.OutputFlag.OPOST, 0x00000001L);
+        m.outputFlags.put(Attributes.OutputFlag.ONLCR, 0x00000002L);
+        m.outputFlags.put(Attributes.OutputFlag.OXTABS, 0x00000004L);
+        m.outputFlags.put(Attributes.OutputFlag.ONOEOT, 0x00000008L);
+        m.outputFlags.put(Attributes.OutputFlag.OCRNL, 0x00000010L);
+        m.outputFlags.put(Attributes.OutputFlag.ONOCR, 0x00000020L);
+        m.outputFlags.put(Attributes.OutputFlag.ONLRET, 0x00000040L);
+        m.outputFlags.put(Attributes.OutputFlag.OFILL, 0x00000080L);
+        m.outputFlags.put(Attributes.OutputFlag.NLDLY, 0x00000300L);
+        m.outputFlags.put(Attributes.OutputFlag.TABDLY, 0x00000c04L);
+        m.outputFlags.put(Attributes.OutputFlag.CRDLY, 0x00003000L);
+        m.outputFlags.put(Attributes.OutputFlag.FFDLY, 0x00004000L);
+        m.outputFlags.put(Attributes.OutputFlag.BSDLY, 0x00008000L);
+        m.outputFlags.put(Attributes.OutputFlag.VTDLY, 0x00010000L);
+        m.outputFlags.put(Attributes.OutputFlag.OFDEL, 0x00020000L);
+
+        m.controlFlags.put(Attributes.ControlFlag.CIGNORE, 0x00000001L);
+        m.charSizeMask = 0x00000300L;
+        m.charSizes.put(Attributes.ControlFlag.CS5, 0x00000000L);
+        m.charSizes.put(Attributes.ControlFlag.CS6, 0x00000100L);
+        m.charSizes.put(Attributes.ControlFlag.CS7, 0x00000200L);
+        m.charSizes.put(Attributes.ControlFlag.CS8, 0x00000300L);
+        m.controlFlags.put(Attributes.ControlFlag.CSTOPB, 0x00000400L);
+        m.controlFlags.put(Attributes.ControlFlag.CREAD, 0x00000800L);
+        m.controlFlags.put(Attributes.ControlFlag.PARENB, 0x00001000L);
+        m.controlFlags.put(Attributes.ControlFlag.PARODD, 0x00002000L);
+        m.controlFlags.put(Attributes.ControlFlag.HUPCL, 0x00004000L);
+        m.controlFlags.put(Attributes.ControlFlag.CLOCAL, 0x00008000L);
+        m.controlFlags.put(Attributes.ControlFlag.CCTS_OFLOW, 0x00010000L);
+        m.controlFlags.put(Attributes.ControlFlag.CRTS_IFLOW, 0x00020000L);
+        m.controlFlags.put(Attributes.ControlFlag.CDTR_IFLOW, 0x00040000L);
+        m.controlFlags.put(Attributes.ControlFlag.CDSR_OFLOW, 0x00080000L);
+        m.controlFlags.put(Attributes.ControlFlag.CCAR_OFLOW, 0x00100000L);
+
+        m.localFlags.put(Attributes.LocalFlag.ECHOKE, 0x00000001L);
+        m.localFlags.put(Attributes.LocalFlag.ECHOE, 0x00000002L);
+        m.localFlags.put(Attributes.LocalFlag.ECHOK, 0x00000004L);
+        m.localFlags.put(Attributes.LocalFlag.ECHO, 0x00000008L);
+        m.localFlags.put(Attributes.LocalFlag.ECHONL, 0x00000010L);
+        m.localFlags.put(Attributes.LocalFlag.ECHOPRT, 0x00000020L);
+        m.localFlags.put(Attributes.LocalFlag.ECHOCTL, 0x00000040L);
+        m.localFlags.put(Attributes.LocalFlag.ISIG, 0x00000080L);
+        m.localFlags.put(Attributes.LocalFlag.ICANON, 0x00000100L);
+        m.localFlags.put(Attributes.LocalFlag.ALTWERASE, 0x00000200L);
+        m.localFlags.put(Attributes.LocalFlag.IEXTEN, 0x00000400L);
+        m.localFlags.put(Attributes.LocalFlag.EXTPROC, 0x00000800L);
+        m.localFlags.put(Attributes.LocalFlag.TOSTOP, 0x00400000L);
+        m.localFlags.put(Attributes.LocalFlag.FLUSHO, 0x00800000L);
+        m.localFlags.put(Attributes.LocalFlag.NOKERNINFO, 0x02000000L);
+        m.localFlags.put(Attributes.LocalFlag.PENDIN, 0x20000000L);
+        m.localFlags.put(Attributes.LocalFlag.NOFLSH, 0x80000000L);
+
+        m.controlChars.put(Attributes.ControlChar.VEOF, 0);
+        m.controlChars.put(Attributes.ControlChar.VEOL, 1);
+        m.controlChars.put(Attributes.ControlChar.VEOL2, 2);
+        m.controlChars.put(Attributes.ControlChar.VERASE, 3);
+        m.controlChars.put(Attributes.ControlChar.VWERASE, 4);
+        m.controlChars.put(Attributes.ControlChar.VKILL, 5);
+        m.controlChars.put(Attributes.ControlChar.VREPRINT, 6);
+        m.controlChars.put(Attributes.ControlChar.VINTR, 8);
+        m.controlChars.put(Attributes.ControlChar.VQUIT, 9);
+        m.controlChars.put(Attributes.ControlChar.VSUSP, 10);
+        m.controlChars.put(Attributes.ControlChar.VDSUSP, 11);
+        m.controlChars.put(Attributes.ControlChar.VSTART, 12);
+        m.controlChars.put(Attributes.ControlChar.VSTOP, 13);
+        m.controlChars.put(Attributes.ControlChar.VLNEXT, 14);
+        m.controlChars.put(Attributes.ControlChar.VDISCARD, 15);
+        m.controlChars.put(Attributes.ControlChar.VMIN, 16);
+        m.controlChars.put(Attributes.ControlChar.VTIME, 17);
+        m.controlChars.put(Attributes.ControlChar.VSTATUS, 18);
+        m.disabled = 0xFF;
+        return m;
+    }
+}
@@ -336,15 +336,24 @@ public class Parser {
      * @return common start string
      */
     public static String findStartsWithOperation(List<? extends CompleteOperation> coList) {
-        List<String> tmpList = new ArrayList<>();
+        String first = null;
+        int length = 0;
         for (CompleteOperation co : coList) {
-            String s = findStartsWith(co.getFormattedCompletionCandidates());
-            if (s.length() > 0)
-                tmpList.add(s);
-            else
+            List<String> candidates = co.getFormattedCompletionCandidates();
+            if (candidates.isEmpty())
                 return "";
+            for (String candidate : candidates) {
+                if (first == null) {
+                    first = candidate;
+                    length = first.length();
+                }
+                else
+                    length = commonPrefixLength(first, candidate, length);
+                if (length == 0)
+                    return "";
+            }
         }
-        return findStartsWith(tmpList);
+        return first == null ? "" : prefix(first, length);
     }
 
     /**
@@ -354,21 +363,13 @@ public class Parser {
      * @return biggest common startsWith string
      */
     public static String findStartsWith(List<String> completionList) {
-        StringBuilder builder = new StringBuilder();
-        for (String completion : completionList)
-            while (builder.length() < completion.length() &&
-                    startsWith(completion.substring(0, builder.length() + 1), completionList))
-                builder.append(completion.charAt(builder.length()));
-
-        return builder.toString();
-    }
-
-    private static boolean startsWith(String criteria, List<String> completionList) {
-        for (String completion : completionList)
-            if (!completion.startsWith(criteria))
-                return false;
-
-        return true;
+        if (completionList.isEmpty())
+            return "";
+        String first = completionList.get(0);
+        int length = first.length();
+        for (int i = 1; i < completionList.size() && length > 0; i++)
+            length = commonPrefixLength(first, completionList.get(i), length);
+        return prefix(first, length);
     }
 
     /**
@@ -378,21 +379,31 @@ public class Parser {
      * @return biggest common startsWith string
      */
     public static String findStartsWithTerminalString(List<TerminalString> completionList) {
-        StringBuilder builder = new StringBuilder();
-        for (TerminalString completion : completionList)
-            while (builder.length() < completion.getCharacters().length() &&
-                    startsWithTerminalString(completion.getCharacters().substring(0, builder.length() + 1), completionList))
-                builder.append(completion.getCharacters().charAt(builder.length()));
-
-        return builder.toString();
+        if (completionList.isEmpty())
+            return "";
+        String first = completionList.get(0).getCharacters();
+        int length = first.length();
+        for (int i = 1; i < completionList.size() && length > 0; i++)
+            length = commonPrefixLength(first, completionList.get(i).getCharacters(), length);
+        return prefix(first, length);
     }
 
-    private static boolean startsWithTerminalString(String criteria, List<TerminalString> completionList) {
-        for (TerminalString completion : completionList)
-            if (!completion.getCharacters().startsWith(criteria))
-                return false;
-
-        return true;
+    /**
+     * @return the number of equal chars at the start of both strings, but not more than max
+     */
+    private static int commonPrefixLength(String first, String second, int max) {
+        int length = Math.min(max, second.length());
+        for (int i = 0; i < length; i++)
+            if (first.charAt(i) != second.charAt(i))
+                return i;
+        return length;
+    }
+
+    //do not split a surrogate pair, the prefix is compared by code points
+    private static String prefix(String first, int length) {
+        if (length > 0 && length < first.length() && Character.isHighSurrogate(first.charAt(length - 1)))
+            length--;
+        return first.substring(0, length);
     }
 
     public static String findWordClosestToCursor(String text, int cursor) {
@@ -19,6 +19,8 @@
  */
 package org.aesh.parser;
 
+import org.aesh.readline.completion.CompleteOperation;
+import org.aesh.readline.completion.CompleteOperationImpl;
 import org.aesh.readline.terminal.formatting.TerminalString;
 import org.aesh.terminal.utils.ANSI;
 import org.aesh.terminal.utils.Config;
@@ -56,6 +58,27 @@ public class ParserTest {
         assertEquals("", Parser.findStartsWith(completionList));
     }
 
+    @Test
+    public void testFindStartsWithCodePoints() {
+        List<String> completionList = new ArrayList<>();
+        completionList.add("foo\uD83D\uDE00");
+        completionList.add("foo\uD83D\uDE01");
+        assertEquals("foo", Parser.findStartsWith(completionList));
+
+        List<TerminalString> terminalStrings = new ArrayList<>();
+        terminalStrings.add(new TerminalString("foo\uD83D\uDE00bar"));
+        terminalStrings.add(new TerminalString("foo\uD83D\uDE00baz"));
+        assertEquals("foo\uD83D\uDE00ba", Parser.findStartsWithTerminalString(terminalStrings));
+        assertEquals("", Parser.findStartsWithTerminalString(new ArrayList<>()));
+
+        CompleteOperation first = new CompleteOperationImpl("", 0);
+        first.addCompletionCandidate("foobar");
+        first.addCompletionCandidate("foobaz");
+        CompleteOperation second = new CompleteOperationImpl("", 0);
+        second.addCompletionCandidate("foob");
+        assertEquals("foob", Parser.findStartsWithOperation(Arrays.asList(first, second)));
+    }
+
     @Test
     public void testFindEscapedSpaceWordCloseToEnd() {
         assertEquals("ls\\ foo", Parser.findEscapedSpaceWordCloseToEnd(" ls\\ foo"));
@@ -338,6 +338,8 @@ public class BufferTest {
         List<int[]> outConsumer = new ArrayList<>();
         buffer.insert(outConsumer::add, "foo", 100);
         outConsumer.clear();
+        //force a redraw of the entire line
+        buffer.invalidatePrintedLine();
         buffer.replace(outConsumer::add, "foo",100);
 
         //first move back width
@@ -348,6 +350,80 @@ public class BufferTest {
         assertEquals(out+"foo",Parser.fromCodePoints(outConsumer.get(0)));
     }
 
+    @Test
+    public void replaceOnlyPrintsChanges() {
+        Buffer buffer = new Buffer(new Prompt(": "));
+        List<int[]> outConsumer = new ArrayList<>();
+        buffer.insert(outConsumer::add, "foo bar", 100);
+        outConsumer.clear();
+
+        buffer.replace(outConsumer::add, "foo baz", 100);
+        assertEquals(Parser.fromCodePoints(Buffer.moveNumberOfColumns(1, 'D'))+"z",
+                Parser.fromCodePoints(outConsumer.get(0)));
+        assertEquals("foo baz", buffer.asString());
+        assertEquals(7, buffer.cursor());
+        outConsumer.clear();
+
+        buffer.replace(outConsumer::add, "foo", 100);
+        assertEquals(Parser.fromCodePoints(Buffer.moveNumberOfColumns(4, 'D'))+
+                        Parser.fromCodePoints(ANSI.ERASE_LINE_FROM_CURSOR),
+                Parser.fromCodePoints(outConsumer.get(0)));
+        assertEquals("foo", buffer.asString());
+        outConsumer.clear();
+
+        //the line wraps, everything after the first line must be erased
+        buffer.insert(outConsumer::add, " bar foo bar", 10);
+        outConsumer.clear();
+        buffer.replace(outConsumer::add, "fo", 10);
+        assertEquals(Parser.fromCodePoints(new int[]{27, '[', '1', 'A', 27, '[', '3', 'D'})+
+                        Parser.fromCodePoints(ANSI.ERASE_SCREEN_FROM_CURSOR),
+                Parser.fromCodePoints(outConsumer.get(0)));
+        assertEquals("fo", buffer.asString());
+    }
+
+    @Test
+    public void deleteOnlyPrintsChanges() {
+        Buffer buffer = new Buffer(new Prompt(": "));
+        List<int[]> outConsumer = new ArrayList<>();
+        buffer.insert(outConsumer::add, "foo bar foo bar", 10);
+        buffer.move(outConsumer::add, -4, 10);
+        outConsumer.clear();
+
+        buffer.delete(outConsumer::add, -2, 10);
+        assertEquals("foo bar f bar", buffer.asString());
+        //move back, print the rest of the line, erase and move back to the cursor
+        assertEquals(Parser.fromCodePoints(Buffer.moveNumberOfColumns(2, 'D'))+
+                        " bar"+ Parser.fromCodePoints(ANSI.ERASE_LINE_FROM_CURSOR)+
+                        Parser.fromCodePoints(Buffer.moveNumberOfColumns(4, 'D')),
+                Parser.fromCodePoints(outConsumer.get(0)));
+        assertEquals(9, buffer.cursor());
+    }
+
+    @Test
+    public void wideCharsOnlyPrintsChanges() {
+        Buffer buffer = new Buffer(new Prompt(": "));
+        List<int[]> outConsumer = new ArrayList<>();
+        buffer.insert(outConsumer::add, "a\u4E2D\u6587b", 100);
+        outConsumer.clear();
+
+        //the cursor is moved by the width of the chars
+        buffer.move(outConsumer::add, -1, 100);
+        buffer.move(outConsumer::add, -1, 100);
+        assertEquals(Parser.fromCodePoints(Buffer.moveNumberOfColumns(1, 'D')),
+                Parser.fromCodePoints(outConsumer.get(0)));
+        assertEquals(Parser.fromCodePoints(Buffer.moveNumberOfColumns(2, 'D')),
+                Parser.fromCodePoints(outConsumer.get(1)));
+        outConsumer.clear();
+
+        buffer.delete(outConsumer::add, -1, 100);
+        assertEquals("a\u6587b", buffer.asString());
+        assertEquals(Parser.fromCodePoints(Buffer.moveNumberOfColumns(2, 'D'))+
+                        "\u6587b"+ Parser.fromCodePoints(ANSI.ERASE_LINE_FROM_CURSOR)+
+                        Parser.fromCodePoints(Buffer.moveNumberOfColumns(3, 'D')),
+                Parser.fromCodePoints(outConsumer.get(0)));
+        assertEquals(1, buffer.cursor());
+    }
+
     @Test
     public void multiLineBackslash() {
         Buffer buffer = new Buffer(new Prompt(": "));
@@ -19,14 +19,27 @@
  */
 package org.aesh.readline;
 
+import org.aesh.readline.completion.CompleteOperation;
 import org.aesh.readline.completion.Completion;
+import org.aesh.readline.completion.SimpleCompletionHandler;
+import org.aesh.readline.editing.EditModeBuilder;
 import org.aesh.readline.terminal.Key;
 import org.aesh.readline.tty.terminal.TestConnection;
+import org.aesh.terminal.tty.Size;
 import org.aesh.terminal.utils.Config;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author <a href=mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
@@ -193,4 +206,139 @@ public class CompletionReadlineTest {
         term.read(Config.getLineSeparator());
     }
 
+
+    @Test
+    public void testAsyncCompletion() {
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        List<CompletionStage<Void>> results = new ArrayList<>();
+        List<Completion> completions = new ArrayList<>();
+        completions.add(new Completion<CompleteOperation>() {
+            @Override
+            public void complete(CompleteOperation co) {
+            }
+
+            @Override
+            public CompletionStage<Void> completeAsync(CompleteOperation co) {
+                CompletableFuture<Void> request = new CompletableFuture<>();
+                requests.add(request);
+                CompletionStage<Void> result = request.thenRun(() -> {
+                    if(co.getBuffer().equals("foo"))
+                        co.addCompletionCandidate("foobar");
+                });
+                results.add(result);
+                return result;
+            }
+        });
+        completions.add(co -> {
+            if(co.getBuffer().equals("foo"))
+                co.addCompletionCandidate("foobaz");
+        });
+
+        TestConnection term = new TestConnection(completions);
+        term.read("foo");
+        term.read(Key.CTRL_I);
+        //the slow completion should not block the input
+        term.assertBuffer("foo");
+        requests.get(0).complete(null);
+        //the candidates from both completions are merged
+        term.assertBuffer("fooba");
+        term.read(Config.getLineSeparator());
+        term.assertLine("fooba");
+
+        term.readline(completions);
+        term.read("foo");
+        term.read(Key.CTRL_I);
+        term.read("x");
+        assertTrue(results.get(1).toCompletableFuture().isCancelled());
+        requests.get(1).complete(null);
+        term.assertBuffer("foox");
+    }
+
+    @Test
+    public void testParallelCompletion() throws InterruptedException {
+        SimpleCompletionHandler completionHandler = new SimpleCompletionHandler();
+        completionHandler.setParallelCompletion(3);
+        completionHandler.setCompletionTimeout(200, TimeUnit.MILLISECONDS);
+
+        //the first two completions only finish if they run at the same time
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch never = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        List<Completion> completions = new ArrayList<>();
+        completions.add(co -> {
+            await(started);
+            co.addCompletionCandidate("foobaz");
+        });
+        completions.add(co -> {
+            await(started);
+            co.addCompletionCandidate("foobar");
+        });
+        Completion slow = co -> {
+            try {
+                never.await(5, TimeUnit.SECONDS);
+            }
+            catch(InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            co.addCompletionCandidate("foo-slow");
+        };
+        completions.add(slow);
+
+        TestReadline readline = new TestReadline(EditModeBuilder.builder().create(), completionHandler);
+        TestConnection term = new TestConnection(readline, null, completions, null, null);
+        term.readline(completions);
+        term.read("foo");
+        term.read(Key.CTRL_I);
+
+        for(int i = 0; i < 100 && !readline.getBuffer().equals("fooba"); i++)
+            Thread.sleep(50);
+        //the slow completion timed out and is ignored
+        term.assertBuffer("fooba");
+        assertEquals(3, completionHandler.getCompletionTimings().size());
+        assertEquals(completions, new ArrayList<>(completionHandler.getCompletionTimings().keySet()));
+        assertTrue(completionHandler.getCompletionTimings().get(slow) >= TimeUnit.MILLISECONDS.toNanos(100));
+        //the thread running the slow completion is interrupted when it time out
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        completionHandler.shutdown();
+        assertNull(completionHandler.getCompletionExecutor());
+    }
+
+    @Test
+    public void testPagedCompletions() {
+        List<Completion> completions = new ArrayList<>();
+        completions.add(co -> {
+            for(int i = 0; i < 200; i++)
+                co.addCompletionCandidate(String.format(i % 2 == 0 ? "foo-%03d" : "bar-%03d", i));
+        });
+
+        TestConnection term = new TestConnection(null, completions, new Size(80, 10));
+        term.read(Key.CTRL_I);
+        assertTrue(term.getOutputBuffer().contains("Display all 200 possibilities? (y or n)"));
+        term.clearOutputBuffer();
+        term.read("y");
+        //one screen at the time, the candidates are sorted
+        assertTrue(term.getOutputBuffer().contains("bar-001"));
+        assertFalse(term.getOutputBuffer().contains("foo-000"));
+        assertTrue(term.getOutputBuffer().endsWith("--More--"));
+        term.clearOutputBuffer();
+        term.read(" ");
+        assertTrue(term.getOutputBuffer().contains("foo-000"));
+        assertFalse(term.getOutputBuffer().contains("foo-198"));
+        assertTrue(term.getOutputBuffer().endsWith("--More--"));
+        term.read("q");
+        term.read("x");
+        term.assertBuffer("x");
+    }
+
+    //count down and wait for the others
+    private static void await(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
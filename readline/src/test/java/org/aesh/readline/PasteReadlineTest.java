@@ -19,10 +19,15 @@
  */
 package org.aesh.readline;
 
+import org.aesh.readline.editing.EditMode;
+import org.aesh.readline.editing.EditModeBuilder;
+import org.aesh.readline.terminal.Key;
 import org.aesh.readline.tty.terminal.TestConnection;
 import org.aesh.terminal.utils.Config;
 import org.junit.Test;
 
+import java.util.EnumMap;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -47,4 +52,49 @@ public class PasteReadlineTest {
         connection.read("234"+ Config.getLineSeparator());
         connection.assertLine("admin!234");
     }
+
+    @Test
+    public void bracketedPaste() throws Exception {
+        EnumMap<ReadlineFlag, Integer> flags = new EnumMap<>(ReadlineFlag.class);
+        flags.put(ReadlineFlag.BRACKETED_PASTE, 0);
+        TestConnection connection = new TestConnection(flags);
+        connection.read("foo ");
+        connection.read("\u001B[200~bar baz\u001B[201~");
+        connection.assertBuffer("foo bar baz");
+        //the paste is undone in one go
+        connection.read(Key.CTRL_X_CTRL_U);
+        connection.assertBuffer("foo ");
+        connection.read(Key.ENTER);
+        connection.assertLine("foo ");
+    }
+
+    @Test
+    public void bracketedPasteWithNewlines() throws Exception {
+        EnumMap<ReadlineFlag, Integer> flags = new EnumMap<>(ReadlineFlag.class);
+        flags.put(ReadlineFlag.BRACKETED_PASTE, 0);
+        TestConnection connection = new TestConnection(flags);
+        connection.read("echo ");
+        connection.read(Key.CTRL_A);
+        //nothing is executed before enter, the text after the cursor ends up after the paste
+        connection.read("\u001B[200~foo\r\nbar\rx\ty\u001B[201~");
+        connection.assertBuffer("foo" + Config.getLineSeparator() +
+                "bar" + Config.getLineSeparator() + "x       yecho ");
+        connection.read(Key.ENTER);
+        connection.assertLine("foo" + Config.getLineSeparator() +
+                "bar" + Config.getLineSeparator() + "x       yecho ");
+    }
+
+    @Test
+    public void bracketedPasteViCommandMode() throws Exception {
+        EnumMap<ReadlineFlag, Integer> flags = new EnumMap<>(ReadlineFlag.class);
+        flags.put(ReadlineFlag.BRACKETED_PASTE, 0);
+        TestConnection connection = new TestConnection(null, EditModeBuilder.builder(EditMode.Mode.VI).create(),
+                null, null, null, null, flags);
+        connection.read("foo");
+        connection.read(Key.ESC);
+        connection.read("\u001B[200~bar\u001B[201~");
+        connection.assertBuffer("fobaro");
+        connection.read(Key.ENTER);
+        connection.assertLine("fobaro");
+    }
 }
@@ -19,7 +19,9 @@
  */
 package org.aesh.readline;
 
+import org.aesh.readline.completion.CompletionHandler;
 import org.aesh.readline.editing.EditMode;
+import org.aesh.readline.history.InMemoryHistory;
 
 /**
  * @author <a href=mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
@@ -34,6 +36,10 @@ public class TestReadline extends Readline {
         super(editMode);
     }
 
+    public TestReadline(EditMode editMode, CompletionHandler completionHandler) {
+        super(editMode, new InMemoryHistory(), completionHandler);
+    }
+
     public String getBuffer() {
         return getInputProcessor().buffer().buffer().asString();
     }
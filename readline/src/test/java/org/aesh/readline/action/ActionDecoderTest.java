@@ -0,0 +1,130 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.action;
+
+import org.aesh.readline.editing.EditMode;
+import org.aesh.readline.editing.EditModeBuilder;
+import org.aesh.readline.terminal.Key;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class ActionDecoderTest {
+
+    @Test
+    public void testLongestMatch() {
+        ActionDecoder decoder = new ActionDecoder();
+        decoder.add(new int[]{27, 91, 65, 'a', 27});
+
+        assertEquals(Key.UP, decoder.next());
+        assertEquals(Key.a, decoder.next());
+        assertEquals(Key.ESC, decoder.next());
+        assertFalse(decoder.hasNext());
+    }
+
+    @Test
+    public void testIncompleteSequence() {
+        EditMode editMode = EditModeBuilder.builder(EditMode.Mode.EMACS).create();
+        editMode.addAction(new int[]{1000, 1001}, "forward-word");
+        ActionDecoder decoder = new ActionDecoder(editMode);
+
+        decoder.add(1000);
+        assertFalse(decoder.hasNext());
+        decoder.add(1001);
+        assertTrue(decoder.hasNext());
+        assertEquals("forward-word", editMode.parse(decoder.next()).name());
+
+        //not bound, should be returned as a single key
+        decoder.add(new int[]{1001, 1000});
+        assertEquals(1001, decoder.next().getCodePointAt(0));
+        assertFalse(decoder.hasNext());
+    }
+
+    @Test
+    public void testSetMappings() {
+        EditMode editMode = EditModeBuilder.builder(EditMode.Mode.EMACS).create();
+        ActionDecoder decoder = new ActionDecoder(editMode);
+        editMode.addAction(new int[]{1000, 1001}, "forward-word");
+
+        decoder.add(1000);
+        assertEquals(1000, decoder.next().getCodePointAt(0));
+
+        decoder.setMappings(editMode);
+        decoder.add(new int[]{1000, 1001});
+        assertEquals("forward-word", editMode.parse(decoder.next()).name());
+    }
+
+    @Test
+    public void testLargeInput() {
+        ActionDecoder decoder = new ActionDecoder();
+        int[] input = new int[1000];
+        for(int i = 0; i < input.length; i++)
+            input[i] = i % 2 == 0 ? 'a' : 'b';
+
+        decoder.add(input);
+        for(int i = 0; i < 600; i++)
+            decoder.next();
+        decoder.add(input);
+        decoder.add(new int[]{27, 91, 65});
+
+        for(int i = 600; i < 2000; i++)
+            assertEquals(i % 2 == 0 ? 'a' : 'b', decoder.next().getCodePointAt(0));
+        assertEquals(Key.UP, decoder.next());
+        assertFalse(decoder.hasNext());
+    }
+
+    @Test
+    public void testNextPrintables() {
+        EditMode editMode = EditModeBuilder.builder(EditMode.Mode.EMACS).create();
+        ActionDecoder decoder = new ActionDecoder(editMode);
+        decoder.add(new int[]{'f', 'o', 'o', ' ', 'b', 'a', 'r', 1, 'x'});
+
+        assertArrayEquals(new int[]{'f', 'o', 'o', ' ', 'b', 'a', 'r'}, decoder.nextPrintables());
+        assertEquals(0, decoder.nextPrintables().length);
+        assertEquals("beginning-of-line", editMode.parse(decoder.next()).name());
+        assertArrayEquals(new int[]{'x'}, decoder.nextPrintables());
+        assertFalse(decoder.hasNext());
+    }
+
+    @Test
+    public void testBracketedPaste() {
+        ActionDecoder decoder = new ActionDecoder();
+        decoder.add(new int[]{27, '[', '2', '0', '0', '~', 'f', 'o'});
+        //wait for the rest of the paste
+        assertFalse(decoder.hasNext());
+        decoder.add(new int[]{'o', 13, 'b', 'a', 'r', 13, 10, 9, 27, 'x', 27, '[', '2', '0'});
+        //the end marker is not complete yet
+        assertFalse(decoder.hasNext());
+
+        decoder.add(new int[]{'1', '~', 'x'});
+        KeyAction paste = decoder.next();
+        assertTrue(paste instanceof PasteKeyAction);
+        assertArrayEquals(new int[]{'f', 'o', 'o', '\n', 'b', 'a', 'r', '\n', 9, 27, 'x'},
+                ((PasteKeyAction) paste).getInput());
+        assertEquals(Key.x, decoder.next());
+        assertFalse(decoder.hasNext());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.completion;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class CachingCompletionTest {
+
+    @Test
+    public void testCachedCandidates() {
+        AtomicInteger calls = new AtomicInteger();
+        CachingCompletion<CompleteOperation> completion = new CachingCompletion<>(co -> {
+            calls.incrementAndGet();
+            int start = co.getBuffer().lastIndexOf(' ') + 1;
+            String word = co.getBuffer().substring(start);
+            for(String file : new String[]{"foo", "foobar", "fun", "bar"})
+                if(file.startsWith(word))
+                    co.addCompletionCandidate(file);
+            co.setOffset(start);
+        }, 10, 1, TimeUnit.MINUTES, "");
+
+        CompleteOperation co = new CompleteOperationImpl("ls f", 4);
+        completion.complete(co);
+        assertEquals(3, co.getCompletionCandidates().size());
+        assertEquals(1, calls.get());
+
+        co = new CompleteOperationImpl("ls f", 4);
+        completion.complete(co);
+        assertEquals(3, co.getCompletionCandidates().size());
+        assertEquals(3, co.getOffset());
+        assertEquals(1, calls.get());
+
+        //the longer word is filtered from the cached candidates
+        co = new CompleteOperationImpl("ls foo", 6);
+        completion.complete(co);
+        assertEquals(2, co.getCompletionCandidates().size());
+        assertEquals("foobar", co.getCompletionCandidates().get(1).getCharacters());
+        assertEquals(1, calls.get());
+
+        //a new word is not filtered
+        co = new CompleteOperationImpl("ls f b", 6);
+        completion.complete(co);
+        assertEquals(1, co.getCompletionCandidates().size());
+        assertEquals(2, calls.get());
+
+        completion.invalidate();
+        co = new CompleteOperationImpl("ls f", 4);
+        completion.complete(co);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testFilterIsOptIn() {
+        AtomicInteger calls = new AtomicInteger();
+        CachingCompletion<CompleteOperation> completion = new CachingCompletion<>(co -> {
+            calls.incrementAndGet();
+            co.addCompletionCandidate("foo");
+            co.addCompletionCandidate("foobar");
+        }, 10, 1, TimeUnit.MINUTES);
+
+        completion.complete(new CompleteOperationImpl("f", 1));
+        completion.complete(new CompleteOperationImpl("fo", 2));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testPathCandidates() {
+        AtomicInteger calls = new AtomicInteger();
+        CachingCompletion<CompleteOperation> completion = new CachingCompletion<>(co -> {
+            calls.incrementAndGet();
+            int start = co.getBuffer().lastIndexOf(' ') + 1;
+            String word = co.getBuffer().substring(start);
+            String[] files = word.contains("/") ?
+                    new String[]{"dir/a", "dir/b"} : new String[]{"dir/", "doc/"};
+            for(String file : files)
+                if(file.startsWith(word))
+                    co.addCompletionCandidate(file);
+            co.setOffset(start);
+        }, 10, 1, TimeUnit.MINUTES, "/");
+
+        CompleteOperation co = new CompleteOperationImpl("ls dir", 6);
+        completion.complete(co);
+        assertEquals(1, co.getCompletionCandidates().size());
+
+        //the candidates of the directory are not filtered from the ones of its parent
+        co = new CompleteOperationImpl("ls dir/", 7);
+        completion.complete(co);
+        assertEquals(2, calls.get());
+        assertEquals(2, co.getCompletionCandidates().size());
+        assertEquals("dir/a", co.getCompletionCandidates().get(0).getCharacters());
+
+        //but they are filtered within the directory
+        co = new CompleteOperationImpl("ls dir/b", 8);
+        completion.complete(co);
+        assertEquals(2, calls.get());
+        assertEquals(1, co.getCompletionCandidates().size());
+        assertEquals("dir/b", co.getCompletionCandidates().get(0).getCharacters());
+    }
+
+    @Test
+    public void testExpiredCandidates() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        CachingCompletion<CompleteOperation> completion = new CachingCompletion<>(co -> {
+            calls.incrementAndGet();
+            co.addCompletionCandidate("foo");
+        }, 1, 10, TimeUnit.MILLISECONDS);
+
+        completion.complete(new CompleteOperationImpl("f", 1));
+        Thread.sleep(20);
+        completion.complete(new CompleteOperationImpl("f", 1));
+        assertEquals(2, calls.get());
+
+        //max size is one
+        completion.complete(new CompleteOperationImpl("b", 1));
+        completion.complete(new CompleteOperationImpl("f", 1));
+        assertEquals(4, calls.get());
+    }
+}
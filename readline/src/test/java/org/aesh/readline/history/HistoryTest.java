@@ -30,6 +30,10 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -60,6 +64,27 @@ public class HistoryTest {
         term.assertLine("567");
     }
 
+    @Test
+    public void testFuzzySearchAction() {
+        EditMode editMode = EditModeBuilder.builder(EditMode.Mode.EMACS).create();
+        editMode.addAction(Key.CTRL_T.getKeyValues(), "fuzzy-search-history");
+        TestConnection term = new TestConnection(editMode);
+        term.read("git status"+Config.getLineSeparator());
+        term.readline();
+        term.read("ls -la"+Config.getLineSeparator());
+        term.readline();
+        term.read("git stash"+Config.getLineSeparator());
+        term.readline();
+
+        term.read(Key.CTRL_T);
+        term.read("gst");
+        term.assertBuffer("(fuzzy-search) `gst': git stash");
+        term.read(Key.CTRL_T);
+        term.assertBuffer("(fuzzy-search) `gst': git status");
+        term.read(Key.ENTER);
+        term.assertLine("git status");
+    }
+
     @Test
     public void testEmptyHistory() {
 
@@ -306,6 +331,177 @@ public class HistoryTest {
         }
     }
 
+    @Test
+    public void testFileHistoryAppend() throws IOException {
+        File historyFile = File.createTempFile("aesh-history-append", ".test");
+        historyFile.deleteOnExit();
+        History history = new FileHistory(historyFile, 5, null, false, true, SyncPolicy.ALWAYS);
+        history.push(Parser.toCodePoints("1"));
+        history.push(Parser.toCodePoints("2"));
+        history.push(Parser.toCodePoints("2"));
+        //written without calling stop
+        assertEquals(2, Files.readAllLines(historyFile.toPath()).size());
+
+        for(int i = 3; i < 150; i++)
+            history.push(Parser.toCodePoints(String.valueOf(i)));
+        history.stop();
+        List<String> lines = Files.readAllLines(historyFile.toPath());
+        assertEquals(5, lines.size());
+        assertEquals("145", lines.get(0));
+        assertEquals("149", lines.get(4));
+
+        history = new FileHistory(historyFile, 5, null, false, true, SyncPolicy.BATCHED);
+        assertEquals(5, history.size());
+        history.push(Parser.toCodePoints("150"));
+        history.stop();
+        lines = Files.readAllLines(historyFile.toPath());
+        assertEquals(5, lines.size());
+        assertEquals("150", lines.get(4));
+
+        //the last line is not terminated, the next entry must not be appended to it
+        Files.write(historyFile.toPath(), "a\nb".getBytes());
+        history = new FileHistory(historyFile, 5, null, false, true, SyncPolicy.NEVER);
+        history.push(Parser.toCodePoints("c"));
+        lines = Files.readAllLines(historyFile.toPath());
+        assertEquals(3, lines.size());
+        assertEquals("b", lines.get(1));
+        assertEquals("c", lines.get(2));
+        history.stop();
+    }
+
+    @Test
+    public void testFileHistoryReplaced() throws IOException {
+        File historyFile = File.createTempFile("aesh-history-replaced", ".test");
+        historyFile.deleteOnExit();
+        History first = new FileHistory(historyFile, 2, null, false, true, SyncPolicy.NEVER);
+        first.push(Parser.toCodePoints("a"));
+
+        //another history replace the file when it is stopped
+        History second = new FileHistory(historyFile, 5);
+        second.push(Parser.toCodePoints("b"));
+        second.stop();
+
+        //the entry is appended to the new file
+        first.push(Parser.toCodePoints("c"));
+        assertEquals(Arrays.asList("a", "b", "c"), Files.readAllLines(historyFile.toPath()));
+        //compacting keep the entry appended by the other history
+        first.stop();
+        assertEquals(Arrays.asList("b", "c"), Files.readAllLines(historyFile.toPath()));
+    }
+
+    @Test
+    public void testMappedFileHistory() throws IOException {
+        File historyFile = File.createTempFile("aesh-history-mapped", ".test");
+        historyFile.deleteOnExit();
+        Files.write(historyFile.toPath(),
+                "1\n2\r\n\n3\n4\nfoo æøå\n5\n6".getBytes(StandardCharsets.UTF_8));
+
+        History history = new MappedFileHistory(historyFile, 5);
+        assertEquals(5, history.size());
+        assertArrayEquals(Parser.toCodePoints("3"), history.get(0));
+        assertArrayEquals(Parser.toCodePoints("foo æøå"), history.get(2));
+        assertArrayEquals(Parser.toCodePoints("6"), history.getPreviousFetch());
+        assertArrayEquals(Parser.toCodePoints("foo æøå"), history.search(Parser.toCodePoints("æ")));
+
+        history.push(Parser.toCodePoints("7"));
+        history.push(Parser.toCodePoints("7"));
+        assertEquals(5, history.size());
+        assertArrayEquals(Parser.toCodePoints("4"), history.get(0));
+        history.stop();
+
+        List<String> lines = Files.readAllLines(historyFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(5, lines.size());
+        assertEquals("foo æøå", lines.get(1));
+        assertEquals("7", lines.get(4));
+    }
+
+    @Test
+    public void testSharedMappedFileHistory() throws IOException {
+        File historyFile = File.createTempFile("aesh-history-shared", ".test");
+        historyFile.deleteOnExit();
+        Files.write(historyFile.toPath(), "a\nb".getBytes(StandardCharsets.UTF_8));
+
+        History first = new MappedFileHistory(historyFile, 3);
+        History second = new MappedFileHistory(historyFile, 3);
+        first.push(Parser.toCodePoints("c"));
+        second.push(Parser.toCodePoints("d"));
+        first.push(Parser.toCodePoints("e"));
+        //the unterminated last line is not joined with the next entry
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), Files.readAllLines(historyFile.toPath()));
+
+        //compacting keep the entries appended by the other history
+        first.stop();
+        assertEquals(Arrays.asList("c", "d", "e"), Files.readAllLines(historyFile.toPath()));
+
+        //the file have been replaced, the other history append to the new file
+        second.push(Parser.toCodePoints("f"));
+        second.stop();
+        assertEquals(Arrays.asList("d", "e", "f"), Files.readAllLines(historyFile.toPath()));
+    }
+
+    @Test
+    public void testIncrementalSearch() {
+        History history = new InMemoryHistory(-1);
+        for(int i = 0; i < 1000; i++)
+            history.push(Parser.toCodePoints("entry "+i));
+        HistorySearch search = new HistorySearch(history);
+
+        assertEquals(1000, search.matches(Parser.toCodePoints("e")).length);
+        assertEquals(271, search.matches(Parser.toCodePoints("9")).length);
+        assertArrayEquals(new int[]{99, 199, 299, 399, 499, 599, 699, 799, 899, 990, 991, 992, 993, 994, 995, 996, 997, 998, 999},
+                search.matches(Parser.toCodePoints("99")));
+        assertEquals(899, search.searchReverse(Parser.toCodePoints("99"), 989));
+        assertEquals(990, search.searchForward(Parser.toCodePoints("99"), 900));
+        assertEquals(-1, search.searchForward(Parser.toCodePoints("999"), 1000));
+        assertEquals(-1, search.searchReverse(Parser.toCodePoints("foo"), 999));
+
+        history.setSearchDirection(SearchDirection.REVERSE);
+        assertArrayEquals(Parser.toCodePoints("entry 999"), history.search(Parser.toCodePoints("99")));
+        assertArrayEquals(Parser.toCodePoints("entry 998"), history.search(Parser.toCodePoints("99")));
+        assertArrayEquals(Parser.toCodePoints("entry 899"), history.search(Parser.toCodePoints("899")));
+        assertArrayEquals(Parser.toCodePoints("entry 799"), history.search(Parser.toCodePoints("799")));
+        assertArrayEquals(Parser.toCodePoints("entry 799"), history.search(Parser.toCodePoints("79")));
+    }
+
+    @Test
+    public void testHistoryRing() {
+        InMemoryHistory history = new InMemoryHistory(3);
+        history.push(Parser.toCodePoints("1"));
+        history.push(Parser.toCodePoints("2"));
+        history.push(Parser.toCodePoints("3"));
+        history.push(Parser.toCodePoints("4"));
+        history.push(Parser.toCodePoints("1"));
+
+        assertEquals(3, history.size());
+        assertArrayEquals(Parser.toCodePoints("3"), history.get(0));
+        assertArrayEquals(Parser.toCodePoints("1"), history.get(2));
+        assertArrayEquals(Parser.toCodePoints("4"), history.find(Parser.toCodePoints("4")));
+        assertEquals(null, history.find(Parser.toCodePoints("2")));
+        assertEquals(3, history.getAll().size());
+    }
+
+    @Test
+    public void testEraseDuplicates() {
+        InMemoryHistory history = new InMemoryHistory(10);
+        history.push(Parser.toCodePoints("ls"));
+        history.push(Parser.toCodePoints("cd"));
+        history.push(Parser.toCodePoints("ls"));
+        history.push(Parser.toCodePoints("pwd"));
+        assertEquals(4, history.size());
+
+        history.setEraseDuplicates(true);
+        assertEquals(3, history.size());
+        assertArrayEquals(Parser.toCodePoints("cd"), history.get(0));
+
+        history.push(Parser.toCodePoints("cd"));
+        assertEquals(3, history.size());
+        assertArrayEquals(Parser.toCodePoints("ls"), history.get(0));
+        assertArrayEquals(Parser.toCodePoints("pwd"), history.get(1));
+        assertArrayEquals(Parser.toCodePoints("cd"), history.get(2));
+        assertArrayEquals(Parser.toCodePoints("cd"), history.getPreviousFetch());
+        assertArrayEquals(Parser.toCodePoints("pwd"), history.getPreviousFetch());
+    }
+
     @Test
     public void testPrevHistory() {
         History history = new InMemoryHistory(20);
@@ -318,4 +514,60 @@ public class HistoryTest {
         assertArrayEquals(Parser.toCodePoints("foo3"), history.getPreviousFetch());
 
     }
+
+    @Test
+    public void testFuzzyScore() {
+        int[] query = Parser.toCodePoints("sta");
+        assertTrue(FuzzyHistorySearch.score(query, Parser.toCodePoints("git status"), false) >
+                FuzzyHistorySearch.score(query, Parser.toCodePoints("some text again"), false));
+        assertEquals(-1, FuzzyHistorySearch.score(query, Parser.toCodePoints("git add"), false));
+        assertEquals(-1, FuzzyHistorySearch.score(Parser.toCodePoints("Sta"),
+                Parser.toCodePoints("git status"), true));
+        assertTrue(FuzzyHistorySearch.score(query, Parser.toCodePoints("git STATUS"), false) > 0);
+    }
+
+    @Test
+    public void testFuzzySearch() {
+        InMemoryHistory history = new InMemoryHistory(10);
+        history.push(Parser.toCodePoints("git status"));
+        history.push(Parser.toCodePoints("grep stat file"));
+        history.push(Parser.toCodePoints("git status"));
+        history.push(Parser.toCodePoints("ls"));
+        history.push(Parser.toCodePoints("git stash"));
+
+        FuzzyHistorySearch search = new FuzzyHistorySearch(history);
+        int[] result = search.search(Parser.toCodePoints("gst"), 10);
+        //equal entries are only returned once
+        assertEquals(3, result.length);
+        //the entry used twice is ranked above the newer one
+        assertArrayEquals(Parser.toCodePoints("git status"), search.get(result[0]));
+        assertEquals(2, result[0]);
+
+        result = search.search(Parser.toCodePoints("gsth"), 10);
+        assertEquals(1, result.length);
+        assertArrayEquals(Parser.toCodePoints("git stash"), search.get(result[0]));
+
+        result = search.search(Parser.toCodePoints("GST"), 10);
+        assertEquals(0, result.length);
+
+        //empty query rank by recency and frequency
+        result = search.search(new int[0], 2);
+        assertEquals(2, result[0]);
+        assertEquals(4, result[1]);
+    }
+
+    @Test
+    public void testFuzzySearchLargeHistory() {
+        InMemoryHistory history = new InMemoryHistory(FuzzyHistorySearch.PARALLEL_THRESHOLD * 2);
+        for(int i = 0; i < FuzzyHistorySearch.PARALLEL_THRESHOLD * 2; i++)
+            history.push(Parser.toCodePoints("command "+i));
+
+        FuzzyHistorySearch search = new FuzzyHistorySearch(history);
+        int[] result = search.search(Parser.toCodePoints("command 1234"), 5);
+        assertEquals(5, result.length);
+        assertTrue(Parser.fromCodePoints(search.get(result[0])).contains("1234"));
+        result = search.search(Parser.toCodePoints("command 12345"), 5);
+        assertEquals(1, result.length);
+        assertArrayEquals(Parser.toCodePoints("command 12345"), search.get(result[0]));
+    }
 }
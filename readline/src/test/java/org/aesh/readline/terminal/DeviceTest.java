@@ -59,6 +59,17 @@ public class DeviceTest {
         assertArrayEquals(new int[]{10}, device.getStringCapabilityAsInts(Capability.scroll_forward));
     }
 
+    @Test
+    public void testSharedCapabilities() {
+        Device device = DeviceBuilder.builder().name("xterm-256color").build();
+        Device other = DeviceBuilder.builder().name("xterm-256color").build();
+
+        //the devices share the parsed terminfo, modifying the returned array must not leak
+        device.getStringCapabilityAsInts(Capability.key_home)[0] = 0;
+        assertArrayEquals(new int[]{27,79,72}, device.getStringCapabilityAsInts(Capability.key_home));
+        assertArrayEquals(new int[]{27,79,72}, other.getStringCapabilityAsInts(Capability.key_home));
+    }
+
     @Test
     public void testEmacsKeyUpdates() {
         Device device = DeviceBuilder.builder().name("ansi").build();
@@ -77,6 +88,22 @@ public class DeviceTest {
         Device device = DeviceBuilder.builder().name("xterm-256color").build();
         Consumer<int[]> output = ints -> assertEquals("\u001B[H\u001B[2J", Parser.fromCodePoints(ints));
         device.puts(output, Capability.clear_screen);
+
+        ArrayList<int[]> out = new ArrayList<>();
+        assertTrue(device.puts(out::add, Capability.cursor_address, 2, 4));
+        assertEquals("\u001B[3;5H", Parser.fromCodePoints(out.get(0)));
+        assertFalse(device.puts(out::add, Capability.key_a1, 1));
+    }
+
+    @Test
+    public void testParameterizedCapabilities() throws Exception {
+        Device device = DeviceBuilder.builder().name("xterm").build();
+        ArrayList<int[]> out = new ArrayList<>();
+        assertTrue(device.puts(out::add, Capability.cursor_address, 4, 9));
+        assertEquals("\u001B[5;10H", Parser.fromCodePoints(out.get(0)));
+        assertTrue(device.puts(out::add, Capability.parm_right_cursor, 3));
+        assertEquals("\u001B[3C", Parser.fromCodePoints(out.get(1)));
+        assertFalse(device.puts(out::add, Capability.key_a1, 1));
     }
 
 }
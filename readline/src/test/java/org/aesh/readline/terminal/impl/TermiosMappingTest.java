@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.terminal.impl;
+
+import org.aesh.terminal.Attributes;
+import org.fusesource.jansi.internal.CLibrary;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class TermiosMappingTest {
+
+    private CLibrary.Termios linuxTermios() {
+        CLibrary.Termios termios = new CLibrary.Termios();
+        termios.c_iflag = 0000400 | 0002000 | 0040000; //ICRNL IXON IUTF8
+        termios.c_oflag = 0000001 | 0000004; //OPOST ONLCR
+        termios.c_cflag = 0000060 | 0000200; //CS8 CREAD
+        termios.c_lflag = 0000001 | 0000002 | 0000010 | 0100000; //ISIG ICANON ECHO IEXTEN
+        termios.c_cc = new byte[32];
+        termios.c_cc[0] = 3;
+        termios.c_cc[4] = 4;
+        termios.c_cc[6] = 1;
+        return termios;
+    }
+
+    @Test
+    public void testLinuxToAttributes() {
+        Attributes attributes = TermiosMapping.LINUX.toAttributes(linuxTermios());
+
+        assertTrue(attributes.getInputFlag(Attributes.InputFlag.ICRNL));
+        assertTrue(attributes.getInputFlag(Attributes.InputFlag.IUTF8));
+        assertFalse(attributes.getInputFlag(Attributes.InputFlag.INLCR));
+        assertTrue(attributes.getOutputFlag(Attributes.OutputFlag.ONLCR));
+        assertTrue(attributes.getControlFlag(Attributes.ControlFlag.CS8));
+        assertFalse(attributes.getControlFlag(Attributes.ControlFlag.CS5));
+        assertTrue(attributes.getLocalFlag(Attributes.LocalFlag.ICANON));
+        assertFalse(attributes.getLocalFlag(Attributes.LocalFlag.ECHOE));
+        assertEquals(3, attributes.getControlChar(Attributes.ControlChar.VINTR));
+        assertEquals(4, attributes.getControlChar(Attributes.ControlChar.VEOF));
+        assertEquals(1, attributes.getControlChar(Attributes.ControlChar.VMIN));
+        assertEquals(0, attributes.getControlChar(Attributes.ControlChar.VTIME));
+        assertEquals(-1, attributes.getControlChar(Attributes.ControlChar.VSUSP));
+    }
+
+    @Test
+    public void testLinuxUpdate() {
+        CLibrary.Termios termios = linuxTermios();
+        //a bit that Attributes do not know about should be kept
+        termios.c_lflag |= 0000004; //XCASE
+        Attributes attributes = TermiosMapping.LINUX.toAttributes(termios);
+        attributes.setLocalFlag(Attributes.LocalFlag.ICANON, false);
+        attributes.setLocalFlag(Attributes.LocalFlag.ECHO, false);
+        attributes.setInputFlag(Attributes.InputFlag.IXON, false);
+        attributes.setControlChar(Attributes.ControlChar.VINTR, 0);
+        attributes.setControlChar(Attributes.ControlChar.VSUSP, 26);
+
+        TermiosMapping.LINUX.update(termios, attributes);
+
+        assertEquals(0000001 | 0000004 | 0100000, termios.c_lflag);
+        assertEquals(0000400 | 0040000, termios.c_iflag);
+        assertEquals(0, termios.c_cc[0]);
+        assertEquals(26, termios.c_cc[10]);
+        assertEquals(1, termios.c_cc[6]);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.readline.util;
+
+import org.aesh.readline.terminal.formatting.TerminalString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare finding the common start of the completion candidates with the
+ * way it was done before, where the prefix was grown one char at the time.
+ * Run the main method with the test classpath of readline.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StartsWithBenchmark {
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    private List<TerminalString> candidates;
+
+    @Setup
+    public void setup() {
+        candidates = new ArrayList<>(size);
+        for(int i = 0; i < size; i++)
+            candidates.add(new TerminalString("/usr/local/share/applications/candidate-"+i, true));
+    }
+
+    @Benchmark
+    public String findStartsWith() {
+        return Parser.findStartsWithTerminalString(candidates);
+    }
+
+    @Benchmark
+    public String previousFindStartsWith() {
+        StringBuilder builder = new StringBuilder();
+        for (TerminalString completion : candidates)
+            while (builder.length() < completion.getCharacters().length() &&
+                    startsWith(completion.getCharacters().substring(0, builder.length() + 1)))
+                builder.append(completion.getCharacters().charAt(builder.length()));
+        return builder.toString();
+    }
+
+    private boolean startsWith(String criteria) {
+        for (TerminalString completion : candidates)
+            if (!completion.getCharacters().startsWith(criteria))
+                return false;
+        return true;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StartsWithBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -20,114 +20,70 @@
 package org.aesh.terminal;
 
 import org.aesh.terminal.tty.Capability;
+import org.aesh.terminal.utils.Curses;
+import org.aesh.terminal.utils.TermInfo;
 
-import java.util.ArrayList;
 import java.util.function.Consumer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public abstract class BaseDevice implements Device {
 
-    private static final Pattern A = Pattern.compile("^\\\\([0-9]{1,3})");
-    private static final Pattern B = Pattern.compile("^\\\\x([0-9,A-F,a-f]{1,2})");
-
     @Override
     public int[] getStringCapabilityAsInts(Capability capability) {
+        int[] seq = getCompiledCapability(capability);
+        return seq != null ? seq.clone() : null;
+    }
+
+    /**
+     * Devices backed by a {@link TermInfo} should override this and return
+     * its precompiled sequences. The returned array is not copied before
+     * it is given to the output of {@link #puts(Consumer, Capability)}.
+     *
+     * @param capability capability
+     * @return the compiled capability or null if the device do not support it
+     */
+    protected int[] getCompiledCapability(Capability capability) {
         String str = getStringCapability(capability);
         if(str != null)
-            return parseKeySeq(str);
+            return TermInfo.parseKeySeq(str);
         else
             return null;
     }
 
-    @Override public boolean puts(Consumer<int[]> output, Capability capability) {
+    /**
+     * Devices backed by a {@link TermInfo} should override this and return
+     * its precompiled templates.
+     *
+     * @param capability capability
+     * @return the compiled capability or null if the device do not support it
+     */
+    protected Curses.Template getTemplate(Capability capability) {
         String str = getStringCapability(capability);
-        if (str == null) {
+        if(str != null)
+            return Curses.compile(str);
+        else
+            return null;
+    }
+
+    @Override public boolean puts(Consumer<int[]> output, Capability capability) {
+        int[] seq = getCompiledCapability(capability);
+        if (seq == null) {
             return false;
         }
-        output.accept(parseKeySeq(str));
+        output.accept(seq);
         return true;
     }
 
-  private static int[] parseKeySeq(String keyseq) {
-    ArrayList<Integer> builder = new ArrayList<>();
-    while (keyseq.length() > 0) {
-      if (keyseq.startsWith("\\C-") && keyseq.length() > 3) {
-        int c = (Character.toUpperCase(keyseq.charAt(3)) - '@') & 0x7F;
-        builder.add(c);
-        keyseq = keyseq.substring(4);
-      } else if (keyseq.startsWith("\\M-") && keyseq.length() > 3) {
-        int c = (Character.toUpperCase(keyseq.charAt(3)) - '@') & 0x7F;
-        builder.add(27);
-        builder.add(c);
-        keyseq = keyseq.substring(4);
-      }
-      else if(keyseq.startsWith("^") && keyseq.length() > 1) {
-          int c = (Character.toUpperCase(keyseq.charAt(1)) - '@') & 0x7F;
-          builder.add(c);
-          keyseq = keyseq.substring(2);
-      }
-      else if (keyseq.startsWith("\\e") || keyseq.startsWith("\\E")) {
-        builder.add(27);
-        keyseq = keyseq.substring(2);
-      } else if (keyseq.startsWith("\\\\")) {
-        builder.add((int)'\\');
-        keyseq = keyseq.substring(2);
-      } else if (keyseq.startsWith("\\\"")) {
-        builder.add((int)'"');
-        keyseq = keyseq.substring(2);
-      } else if (keyseq.startsWith("\\'")) {
-        builder.add((int)'\'');
-        keyseq = keyseq.substring(2);
-      } else if (keyseq.startsWith("\\a")) {
-        builder.add(7);
-        keyseq = keyseq.substring(2);
-      } else if (keyseq.startsWith("\\b")) {
-        builder.add(8);
-        keyseq = keyseq.substring(2);
-      } else if (keyseq.startsWith("\\d")) {
-        builder.add(127);
-        keyseq = keyseq.substring(2);
-      } else if (keyseq.startsWith("\\f")) {
-        builder.add(12);
-        keyseq = keyseq.substring(2);
-      } else if (keyseq.startsWith("\\n")) {
-        builder.add(10);
-        keyseq = keyseq.substring(2);
-      } else if (keyseq.startsWith("\\r")) {
-        builder.add(13);
-        keyseq = keyseq.substring(2);
-      } else if (keyseq.startsWith("\\t")) {
-        builder.add(9);
-        keyseq = keyseq.substring(2);
-      } else if (keyseq.startsWith("\\v")) {
-        builder.add(11);
-        keyseq = keyseq.substring(2);
-      } else {
-        Matcher matcher = A.matcher(keyseq);
-        if (matcher.find()) {
-          builder.add(Integer.parseInt(matcher.group(1), 8));
-          keyseq = keyseq.substring(matcher.end());
-        } else {
-          matcher = B.matcher(keyseq);
-          if (matcher.find()) {
-            builder.add(Integer.parseInt(matcher.group(1), 16));
-            keyseq = keyseq.substring(matcher.end());
-          } else {
-            builder.add((int) keyseq.charAt(0));
-            keyseq = keyseq.substring(1);
-          }
+    @Override
+    public boolean puts(Consumer<int[]> output, Capability capability, int... params) {
+        Curses.Template template = getTemplate(capability);
+        if (template == null) {
+            return false;
         }
-      }
-    }
-    int[] f = new int[builder.size()];
-    for (int i = 0;i < builder.size();i++) {
-      f[i] = builder.get(i);
+        output.accept(template.toInts(params));
+        return true;
     }
-    return f;
-  }
 
 }
@@ -29,6 +29,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
 import org.aesh.terminal.tty.Signal;
 import org.aesh.terminal.utils.ANSI;
+import org.aesh.terminal.io.SliceConsumer;
 
 /**
  * Represent a connection to either a local/direct/remote Terminal.
@@ -75,6 +76,18 @@ public interface Connection extends AutoCloseable {
 
     void setStdinHandler(Consumer<int[]> handler);
 
+    /**
+     * Specify a stdin handler that receive slices of the decoded input.
+     * The array is reused after the handler returns, so the handler must copy
+     * the data it wants to keep.
+     * The handler is returned wrapped as a Consumer from {@link #getStdinHandler()}.
+     *
+     * @param handler stdin handler
+     */
+    default void setStdinSliceHandler(SliceConsumer handler) {
+        setStdinHandler(SliceConsumer.toConsumer(handler));
+    }
+
     /**
      * Handler that's called for all output
      * @return output handler
@@ -20,6 +20,7 @@
 package org.aesh.terminal;
 
 import org.aesh.terminal.tty.Capability;
+import org.aesh.terminal.utils.Curses;
 
 import java.util.function.Consumer;
 
@@ -38,7 +39,37 @@ public interface Device {
 
     String getStringCapability(Capability capability);
 
+    /**
+     * @param capability capability
+     * @return the capability as code points, the caller is free to modify the array.
+     *         null if the device do not support the capability
+     */
     int[] getStringCapabilityAsInts(Capability capability);
 
+    /**
+     * Output a capability, eg: carriage_return or clear_screen.
+     * The array given to output can be shared by the device and must not be modified.
+     *
+     * @param output receives the capability
+     * @param capability capability
+     * @return false if the device do not support the capability
+     */
     boolean puts(Consumer<int[]> output, Capability capability);
+
+    /**
+     * Output a parameterized capability, eg: cursor_address or set_a_foreground
+     *
+     * @param output receives the expanded capability
+     * @param capability capability
+     * @param params capability parameters
+     * @return false if the device do not support the capability
+     */
+    default boolean puts(Consumer<int[]> output, Capability capability, int... params) {
+        String str = getStringCapability(capability);
+        if (str == null) {
+            return false;
+        }
+        output.accept(Curses.compile(str).toInts(params));
+        return true;
+    }
 }
@@ -19,16 +19,22 @@
  */
 package org.aesh.terminal;
 
+import org.aesh.terminal.io.SliceConsumer;
 import org.aesh.terminal.tty.Signal;
 
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Queue;
 import java.util.function.Consumer;
 
 /**
+ * Split the input on the INTR, EOF and SUSP characters and send them as signals.
+ * The rest of the input is sent to the input handler as slices of the
+ * original array, a copy is only made if it must be queued.
+ *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
-public class EventDecoder implements Consumer<int[]> {
+public class EventDecoder implements Consumer<int[]>, SliceConsumer {
 
     private final int intr;
     private final int susp;
@@ -36,6 +42,7 @@ public class EventDecoder implements Consumer<int[]> {
 
     private Consumer<Signal> signalHandler;
     private Consumer<int[]> inputHandler;
+    private SliceConsumer sliceHandler;
 
     private Queue<int[]> inputQueue = new ArrayDeque<>(10);
 
@@ -69,21 +76,37 @@ public class EventDecoder implements Consumer<int[]> {
         return inputHandler;
     }
 
+    /**
+     * Specify the input handler.
+     * If the handler is created with {@link SliceConsumer#toConsumer(SliceConsumer)}
+     * it will receive the input slices without any copies.
+     *
+     * @param inputHandler input handler
+     */
     public void setInputHandler(Consumer<int[]> inputHandler) {
         this.inputHandler = inputHandler;
+        this.sliceHandler = SliceConsumer.of(inputHandler);
         checkQueue();
      }
 
      private void checkQueue() {
-         while(inputHandler != null && !inputQueue.isEmpty())
-             inputHandler.accept(inputQueue.poll());
+         while(sliceHandler != null && !inputQueue.isEmpty()) {
+             int[] input = inputQueue.poll();
+             sliceHandler.accept(input, 0, input.length);
+         }
      }
 
     @Override
     public void accept(int[] input) {
+        accept(input, 0, input.length);
+    }
+
+    @Override
+    public void accept(int[] input, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
         if (signalHandler != null) {
-            int index = 0;
-            while (index < input.length) {
+            for (int index = start; index < end; index++) {
                 int val = input[index];
                 Signal event = null;
                 if (val == intr) {
@@ -94,30 +117,19 @@ public class EventDecoder implements Consumer<int[]> {
                     event = Signal.EOF;
                 }
                 if (event != null) {
-                    if (signalHandler != null) {
-                        if (inputHandler != null) {
-                            int[] a = new int[index];
-                            if (index > 0) {
-                                System.arraycopy(input, 0, a, 0, index);
-                                inputHandler.accept(a);
-                            }
-                        }
-                        signalHandler.accept(event);
-                        int[] a = new int[input.length - index - 1];
-                        System.arraycopy(input, index + 1, a, 0, a.length);
-                        input = a;
-                        index = 0;
-                        continue;
+                    if (sliceHandler != null && index > start) {
+                        sliceHandler.accept(input, start, index - start);
                     }
+                    signalHandler.accept(event);
+                    start = index + 1;
                 }
-                index++;
             }
         }
-        if (input.length > 0) {
-            if(inputHandler != null)
-                inputHandler.accept(input);
+        if (end > start) {
+            if(sliceHandler != null)
+                sliceHandler.accept(input, start, end - start);
             else
-                inputQueue.add(input);
+                inputQueue.add(Arrays.copyOfRange(input, start, end));
         }
     }
 }
@@ -21,30 +21,47 @@ package org.aesh.terminal.io;
 
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
-import java.nio.IntBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Had to revert back to reading char by char.
- * Code is taken from Julien Viet's BinaryDecoder in termd.
+ * Decode bytes to code points.
+ * UTF-8 is decoded directly, other charsets use a CharsetDecoder.
+ * The code points are delivered in chunks of at most initialSize code points
+ * from a buffer that is reused between calls.
+ * Multi-byte sequences that are split between writes are kept until the rest arrives.
+ *
+ * Code for the CharsetDecoder is taken from Julien Viet's BinaryDecoder in termd.
  *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class Decoder {
 
-    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
     private static final Logger LOGGER = Logger.getLogger(Decoder.class.getName());
+    private static final int REPLACEMENT = 0xFFFD;
 
     private CharsetDecoder decoder;
+    private boolean utf8;
+    //bytes left over from the previous write when using the CharsetDecoder
     private ByteBuffer bBuf;
     private final CharBuffer cBuf;
-    private Consumer<int[]> onChar;
+    //high surrogate that have not got its low surrogate yet
+    private char highSurrogate;
+    private SliceConsumer onChar;
+
+    //utf-8 state, the code point so far, how many bytes are missing and the minimum valid value
+    private int utf8CodePoint;
+    private int utf8Needed;
+    private int utf8Min;
+
+    private final int[] codePoints;
+    private int size;
 
     private int[] leftOverCodePoints;
 
@@ -52,21 +69,26 @@ public class Decoder {
         this(4, charset, onChar);
     }
 
+    /**
+     * @param initialSize max number of code points sent to the consumer at a time
+     * @param charset charset
+     * @param onChar consumer, if it is created with {@link SliceConsumer#toConsumer(SliceConsumer)}
+     *               it will receive the decoded code points without any copies
+     */
     public Decoder(int initialSize, Charset charset, Consumer<int[]> onChar) {
         if (initialSize < 2) {
             throw new IllegalArgumentException("Initial size must be at least 2");
         }
-        if(charset != null)
-            decoder = charset.newDecoder();
-        else
-            decoder = Charset.defaultCharset().newDecoder();
-        bBuf = EMPTY;
+        setCharset(charset != null ? charset : Charset.defaultCharset());
+        bBuf = ByteBuffer.allocate(16);
         cBuf = CharBuffer.allocate(initialSize); // We need at least 2
-        this.onChar = onChar;
+        codePoints = new int[initialSize];
+        this.onChar = SliceConsumer.of(onChar);
     }
 
     public void setCharset(Charset charset) {
         decoder = charset.newDecoder();
+        utf8 = charset.equals(StandardCharsets.UTF_8);
     }
 
     public void write(byte[] data) {
@@ -78,83 +100,137 @@ public class Decoder {
         //if we have some leftovers, we use them first
         if(leftOverCodePoints != null && leftOverCodePoints.length > 0 &&
                 onChar != null) {
-            onChar.accept(leftOverCodePoints);
+            onChar.accept(leftOverCodePoints, 0, leftOverCodePoints.length);
             leftOverCodePoints = null;
         }
 
-        // Fill the byte buffer
-        int remaining = bBuf.remaining();
-        if (len > remaining) {
-            // Allocate a new buffer
-            ByteBuffer tmp = bBuf;
-            int length = tmp.position() + len;
-            bBuf = ByteBuffer.allocate(length);
-            tmp.flip();
-            bBuf.put(tmp);
+        if(utf8)
+            decodeUtf8(data, start, len);
+        else
+            decodeCharset(data, start, len);
+        flush();
+    }
+
+    private void decodeUtf8(byte[] data, int start, int len) {
+        for (int i = start; i < start + len; i++) {
+            int b = data[i] & 0xFF;
+            if (utf8Needed > 0) {
+                if ((b & 0xC0) == 0x80) {
+                    utf8CodePoint = (utf8CodePoint << 6) | (b & 0x3F);
+                    if (--utf8Needed == 0) {
+                        if (utf8CodePoint < utf8Min || utf8CodePoint > Character.MAX_CODE_POINT ||
+                                (utf8CodePoint >= Character.MIN_SURROGATE && utf8CodePoint <= Character.MAX_SURROGATE))
+                            add(REPLACEMENT);
+                        else
+                            add(utf8CodePoint);
+                    }
+                    continue;
+                }
+                //the sequence ended too early, the byte is read again as a new sequence
+                utf8Needed = 0;
+                add(REPLACEMENT);
+            }
+            if (b < 0x80)
+                add(b);
+            else if ((b & 0xE0) == 0xC0)
+                startUtf8Sequence(b & 0x1F, 1, 0x80);
+            else if ((b & 0xF0) == 0xE0)
+                startUtf8Sequence(b & 0x0F, 2, 0x800);
+            else if ((b & 0xF8) == 0xF0)
+                startUtf8Sequence(b & 0x07, 3, 0x10000);
+            else
+                add(REPLACEMENT);
         }
-        bBuf.put(data, start, len);
-        bBuf.flip();
+    }
+
+    private void startUtf8Sequence(int codePoint, int needed, int min) {
+        utf8CodePoint = codePoint;
+        utf8Needed = needed;
+        utf8Min = min;
+    }
+
+    private void decodeCharset(byte[] data, int start, int len) {
+        ByteBuffer in;
+        if (bBuf.position() > 0) {
+            //we have bytes from an incomplete sequence, need to add the new data after them
+            if (bBuf.remaining() < len) {
+                ByteBuffer tmp = ByteBuffer.allocate(bBuf.position() + len);
+                bBuf.flip();
+                tmp.put(bBuf);
+                bBuf = tmp;
+            }
+            bBuf.put(data, start, len);
+            bBuf.flip();
+            in = bBuf;
+        }
+        else
+            in = ByteBuffer.wrap(data, start, len);
 
         // Drain the byte buffer
         while (true) {
-            IntBuffer iBuf = IntBuffer.allocate(bBuf.remaining());
-            CoderResult result = decoder.decode(bBuf, cBuf, false);
+            CoderResult result = decoder.decode(in, cBuf, false);
             cBuf.flip();
             while (cBuf.hasRemaining()) {
                 char c = cBuf.get();
-                if (Character.isSurrogate(c)) {
-                    if (Character.isHighSurrogate(c)) {
-                        if (cBuf.hasRemaining()) {
-                            char low = cBuf.get();
-                            if (Character.isLowSurrogate(low)) {
-                                int codePoint = Character.toCodePoint(c, low);
-                                if (Character.isValidCodePoint(codePoint)) {
-                                    iBuf.put(codePoint);
-                                } else {
-                                    throw new UnsupportedOperationException("Handle me gracefully");
-                                }
-                            } else {
-                                throw new UnsupportedOperationException("Handle me gracefully");
-                            }
-                        } else {
-                            throw new UnsupportedOperationException("Handle me gracefully");
-                        }
-                    } else {
-                        throw new UnsupportedOperationException("Handle me gracefully");
+                if (highSurrogate != 0) {
+                    if (Character.isLowSurrogate(c)) {
+                        add(Character.toCodePoint(highSurrogate, c));
+                        highSurrogate = 0;
+                        continue;
                     }
-                } else {
-                    iBuf.put((int) c);
+                    add(REPLACEMENT);
+                    highSurrogate = 0;
                 }
+                if (Character.isHighSurrogate(c))
+                    highSurrogate = c;
+                else if (Character.isLowSurrogate(c))
+                    add(REPLACEMENT);
+                else
+                    add(c);
             }
-            iBuf.flip();
-            int[] codePoints = new int[iBuf.limit()];
-            iBuf.get(codePoints);
-            if(onChar != null)
-                onChar.accept(codePoints);
-            else {
-                LOGGER.log(Level.WARNING, "InputHandler is set to null, will ignore input: " + fromCodePoints(codePoints));
-                leftOverCodePoints = Arrays.copyOf(codePoints, codePoints.length);
-            }
-            cBuf.compact();
-            if (result.isOverflow()) {
-                // We still have work to do
-            } else if (result.isUnderflow()) {
-                //TODO: need to add logic here
-                if (bBuf.hasRemaining()) {
-                    // We need more input
-                } else {
-                    // We are done
-                }
+            cBuf.clear();
+            if (result.isUnderflow()) {
                 break;
-            } else {
-                throw new UnsupportedOperationException("Handle me gracefully");
             }
+            else if (result.isError()) {
+                //skip the malformed or unmappable input
+                add(REPLACEMENT);
+                in.position(in.position() + result.length());
+            }
+            // overflow: we still have work to do
+        }
+
+        //keep the bytes of an incomplete sequence until the next write
+        if (in == bBuf)
+            bBuf.compact();
+        else if (in.hasRemaining()) {
+            bBuf.clear();
+            if (bBuf.capacity() < in.remaining())
+                bBuf = ByteBuffer.allocate(in.remaining());
+            bBuf.put(in);
+        }
+    }
+
+    private void add(int codePoint) {
+        codePoints[size++] = codePoint;
+        if (size == codePoints.length)
+            flush();
+    }
+
+    private void flush() {
+        if (size == 0)
+            return;
+        if (onChar != null)
+            onChar.accept(codePoints, 0, size);
+        else {
+            leftOverCodePoints = Arrays.copyOf(codePoints, size);
+            LOGGER.log(Level.WARNING, "InputHandler is set to null, will ignore input: " + fromCodePoints(leftOverCodePoints));
         }
-        bBuf.compact();
+        size = 0;
     }
 
     public void setConsumer(Consumer<int[]> inputHandler) {
-        onChar = inputHandler;
+        onChar = SliceConsumer.of(inputHandler);
     }
 
     private String fromCodePoints(int[] input) {
@@ -21,35 +21,208 @@ package org.aesh.terminal.io;
 
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.function.Consumer;
 
 /**
+ * Encode code points to bytes.
+ * US-ASCII, ISO-8859-1 and UTF-8 are encoded directly, other charsets use a
+ * CharsetEncoder and buffers that are reused between calls.
+ *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class Encoder implements Consumer<int[]> {
 
+    private enum Kind { ASCII, LATIN1, UTF8, OTHER }
+
     private Charset charset;
+    private Kind kind;
+    private CharsetEncoder charsetEncoder;
+    private CharBuffer charBuf = CharBuffer.allocate(256);
+    private ByteBuffer byteBuf = ByteBuffer.allocate(512);
+    private final char[] chars = new char[2];
+    private final byte[] codePointBytes = new byte[4];
     private final Consumer<byte[]> out;
 
     public Encoder(Charset charset, Consumer<byte[]> out) {
-        if(charset != null)
-            this.charset = charset;
-        else
-            this.charset = Charset.defaultCharset();
+        setCharset(charset != null ? charset : Charset.defaultCharset());
         this.out = out;
     }
 
     public void setCharset(Charset charset) {
-        if(charset != null)
-            this.charset = charset;
+        if(charset != null) {
+            synchronized (this) {
+                this.charset = charset;
+                if(charset.equals(StandardCharsets.US_ASCII))
+                    kind = Kind.ASCII;
+                else if(charset.equals(StandardCharsets.ISO_8859_1))
+                    kind = Kind.LATIN1;
+                else if(charset.equals(StandardCharsets.UTF_8))
+                    kind = Kind.UTF8;
+                else
+                    kind = Kind.OTHER;
+                //same behaviour as Charset.encode
+                charsetEncoder = charset.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            }
+        }
     }
 
     @Override
     public void accept(int[] input) {
-        ByteBuffer bytesBuf = charset.encode(toCharBuffer(input));
-        out.accept(safeTrim(bytesBuf.array(), bytesBuf.limit()));
+        accept(input, 0, input.length);
+    }
+
+    /**
+     * Encode a range of the input and write it in one call.
+     *
+     * @param input code points
+     * @param offset index of the first code point
+     * @param length number of code points
+     */
+    public void accept(int[] input, int offset, int length) {
+        byte[] bytes = encodeDirect(input, offset, length);
+        if(bytes == null)
+            bytes = encodeWithCharset(input, offset, length);
+        out.accept(bytes);
+    }
+
+    /**
+     * Encode the input into the given buffer, only whole code points are written.
+     *
+     * @param input code points
+     * @param offset index of the first code point
+     * @param length number of code points
+     * @param dst destination
+     * @return number of code points written, less than length if dst is full
+     */
+    public synchronized int encode(int[] input, int offset, int length, ByteBuffer dst) {
+        Kind kind = this.kind;
+        for(int i = 0; i < length; i++) {
+            int codePoint = input[offset + i];
+            int size = directSize(kind, codePoint);
+            if(size > 0) {
+                if(dst.remaining() < size)
+                    return i;
+                dst.put(codePointBytes, 0, putDirect(kind, codePoint, codePointBytes, 0));
+            }
+            else {
+                //encode via the charset to a scratch buffer first to make sure it fits
+                byteBuf.clear();
+                charsetEncoder.reset();
+                charsetEncoder.encode(CharBuffer.wrap(chars, 0, Character.toChars(codePoint, chars, 0)), byteBuf, true);
+                charsetEncoder.flush(byteBuf);
+                byteBuf.flip();
+                if(dst.remaining() < byteBuf.remaining())
+                    return i;
+                dst.put(byteBuf);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return the encoded input, or null if it can not be encoded without the CharsetEncoder
+     */
+    private byte[] encodeDirect(int[] input, int offset, int length) {
+        //setCharset can run concurrently, use the same kind for sizing and writing
+        Kind kind = this.kind;
+        if(kind == Kind.OTHER)
+            return null;
+        int byteLength = 0;
+        for(int i = offset; i < offset + length; i++) {
+            int size = directSize(kind, input[i]);
+            if(size == 0)
+                return null;
+            byteLength += size;
+        }
+        byte[] bytes = new byte[byteLength];
+        int index = 0;
+        for(int i = offset; i < offset + length; i++)
+            index = putDirect(kind, input[i], bytes, index);
+        return bytes;
+    }
+
+    /**
+     * @return number of bytes needed to encode the code point directly, 0 if it can't
+     */
+    private static int directSize(Kind kind, int codePoint) {
+        switch (kind) {
+            case ASCII:
+                return codePoint >= 0 && codePoint < 0x80 ? 1 : 0;
+            case LATIN1:
+                return codePoint >= 0 && codePoint < 0x100 ? 1 : 0;
+            case UTF8:
+                if(codePoint < 0)
+                    return 0;
+                else if(codePoint < 0x80)
+                    return 1;
+                else if(codePoint < 0x800)
+                    return 2;
+                else if(codePoint < 0x10000)
+                    return Character.isSurrogate((char) codePoint) ? 0 : 3;
+                else
+                    return codePoint <= Character.MAX_CODE_POINT ? 4 : 0;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return index after the written bytes
+     */
+    private static int putDirect(Kind kind, int codePoint, byte[] dst, int index) {
+        if(kind != Kind.UTF8 || codePoint < 0x80)
+            dst[index++] = (byte) codePoint;
+        else if(codePoint < 0x800) {
+            dst[index++] = (byte) (0xC0 | (codePoint >> 6));
+            dst[index++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        else if(codePoint < 0x10000) {
+            dst[index++] = (byte) (0xE0 | (codePoint >> 12));
+            dst[index++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            dst[index++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        else {
+            dst[index++] = (byte) (0xF0 | (codePoint >> 18));
+            dst[index++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            dst[index++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            dst[index++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return index;
+    }
+
+    private synchronized byte[] encodeWithCharset(int[] input, int offset, int length) {
+        int capacity = 0;
+        for (int i = offset; i < offset + length; i++)
+            capacity += Character.charCount(input[i]);
+        if(charBuf.capacity() < capacity)
+            charBuf = CharBuffer.allocate(capacity);
+        charBuf.clear();
+        for (int i = offset; i < offset + length; i++)
+            charBuf.put(chars, 0, Character.toChars(input[i], chars, 0));
+        charBuf.flip();
+
+        charsetEncoder.reset();
+        byteBuf.clear();
+        //grow the buffer until everything fits
+        while(charsetEncoder.encode(charBuf, byteBuf, true).isOverflow())
+            byteBuf = growByteBuffer(byteBuf);
+        while(charsetEncoder.flush(byteBuf).isOverflow())
+            byteBuf = growByteBuffer(byteBuf);
+        return Arrays.copyOf(byteBuf.array(), byteBuf.position());
+    }
+
+    private static ByteBuffer growByteBuffer(ByteBuffer buffer) {
+        ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        bigger.put(buffer);
+        return bigger;
     }
 
     public static CharBuffer toCharBuffer(int[] input) {
@@ -66,11 +239,4 @@ public class Encoder implements Consumer<int[]> {
         charBuf.flip();
         return charBuf;
     }
-
-    private static byte[] safeTrim(byte[] bytes, int length) {
-        if(bytes.length == length)
-            return bytes;
-        else
-            return Arrays.copyOf(bytes, length);
-    }
 }
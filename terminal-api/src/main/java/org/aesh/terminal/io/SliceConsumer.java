@@ -0,0 +1,69 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.terminal.io;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Receives a slice of a code point array.
+ * The array might be reused by the caller after accept returns, so implementations
+ * must copy the data they need to keep.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+@FunctionalInterface
+public interface SliceConsumer {
+
+    /**
+     * @param data code points
+     * @param offset index of the first code point
+     * @param length number of code points
+     */
+    void accept(int[] data, int offset, int length);
+
+    /**
+     * Adapt a consumer of int[] to a SliceConsumer, each slice is copied to a new array.
+     *
+     * @param consumer consumer
+     * @return slice consumer
+     */
+    static SliceConsumer of(Consumer<int[]> consumer) {
+        if(consumer == null)
+            return null;
+        if(consumer instanceof SliceConsumer)
+            return (SliceConsumer) consumer;
+        return (data, offset, length) -> consumer.accept(Arrays.copyOfRange(data, offset, offset + length));
+    }
+
+    /**
+     * Adapt a SliceConsumer to a consumer of int[].
+     *
+     * @param consumer slice consumer
+     * @return consumer
+     */
+    static Consumer<int[]> toConsumer(SliceConsumer consumer) {
+        if(consumer == null)
+            return null;
+        if(consumer instanceof SliceConsumerAdapter)
+            return (SliceConsumerAdapter) consumer;
+        return new SliceConsumerAdapter(consumer);
+    }
+}
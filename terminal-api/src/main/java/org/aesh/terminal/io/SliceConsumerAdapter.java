@@ -0,0 +1,48 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.terminal.io;
+
+import java.util.function.Consumer;
+
+/**
+ * Lets a SliceConsumer be used where a Consumer of int[] is expected.
+ * Since it is also a SliceConsumer, code that adapts it back with
+ * {@link SliceConsumer#of(Consumer)} gets the original slices without copies.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+final class SliceConsumerAdapter implements Consumer<int[]>, SliceConsumer {
+
+    private final SliceConsumer delegate;
+
+    SliceConsumerAdapter(SliceConsumer delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void accept(int[] data) {
+        delegate.accept(data, 0, data.length);
+    }
+
+    @Override
+    public void accept(int[] data, int offset, int length) {
+        delegate.accept(data, offset, length);
+    }
+}
@@ -19,48 +19,69 @@
  */
 package org.aesh.terminal.tty;
 
+import org.aesh.terminal.io.Encoder;
+
+import java.util.Arrays;
 import java.util.function.Consumer;
 
 /**
+ * Translates '\n' to "\r\n" (equivalent to 'stty onlcr') and writes each
+ * accepted chunk to the handler in one write.
+ * The translation is done in a buffer that is reused between calls, when the
+ * handler is an {@link Encoder} the buffer is encoded directly without a copy.
+ *
  * @author <a href="mailto:julien@julienviet.com">Julien Viet</a>
  */
 public class TtyOutputMode implements Consumer<int[]> {
 
   private final Consumer<int[]> readHandler;
+  private final Encoder encoder;
+  private int[] buffer = new int[0];
 
   public TtyOutputMode(Consumer<int[]> readHandler) {
     this.readHandler = readHandler;
+    this.encoder = readHandler instanceof Encoder ? (Encoder) readHandler : null;
   }
 
   @Override
   public void accept(int[] data) {
     if (readHandler != null && data.length > 0) {
-      int prev = 0;
-      int ptr = 0;
-      while (ptr < data.length) {
-        // Simple implementation that works only on system that uses /n as line terminator
-        // equivalent to 'stty onlcr'
-        int cp = data[ptr];
+      int newLines = 0;
+      for (int cp : data) {
         if (cp == '\n') {
-          if (ptr > prev) {
-            sendChunk(data, prev, ptr);
-          }
-          readHandler.accept(new int[]{'\r','\n'});
-          prev = ++ptr;
-        } else {
-          ptr++;
+          newLines++;
         }
       }
-      if (ptr > prev) {
-        sendChunk(data, prev, ptr);
+      if (newLines == 0) {
+        readHandler.accept(data);
+      }
+      else {
+        write(data, data.length + newLines);
       }
     }
   }
 
-  private void sendChunk(int[] data, int prev, int ptr) {
-    int len = ptr - prev;
-    int[] buf = new int[len];
-    System.arraycopy(data, prev, buf, 0, len);
-    readHandler.accept(buf);
+  private synchronized void write(int[] data, int size) {
+    if (size > buffer.length) {
+      buffer = new int[Math.max(size, buffer.length * 2)];
+    }
+    translate(data, buffer);
+    if (encoder != null) {
+      encoder.accept(buffer, 0, size);
+    }
+    else {
+      readHandler.accept(Arrays.copyOf(buffer, size));
+    }
+  }
+
+  private static void translate(int[] data, int[] out) {
+    int offset = 0;
+    for (int cp : data) {
+      // Simple implementation that works only on system that uses /n as line terminator
+      if (cp == '\n') {
+        out[offset++] = '\r';
+      }
+      out[offset++] = cp;
+    }
   }
 }
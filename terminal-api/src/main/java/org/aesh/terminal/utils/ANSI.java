@@ -83,6 +83,7 @@ public class ANSI {
     public static final String CURSOR_HIDE = "\u001B[?25l";
     public static final String CURSOR_SHOW = "\u001B[?25h";
     public static final int[] ERASE_LINE_FROM_CURSOR = new int[]{ 27, '[', 'K'};
+    public static final int[] ERASE_SCREEN_FROM_CURSOR = new int[]{ 27, '[', 'J'};
     public static final int[] MOVE_LINE_UP = new int[]{ 27, '[', '1', 'A'};
     public static final int[] MOVE_LINE_DOWN = new int[]{ 27, '[', '1', 'B'};
 
@@ -21,22 +21,60 @@ package org.aesh.terminal.utils;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
 
 /**
  * Curses helper methods.
  *
+ * Capability strings are compiled to a small stack based program, see
+ * {@link #compile(String)}. A compiled {@link Template} is immutable and all
+ * evaluation state is local to each call, so templates can be shared by any
+ * number of threads.
+ *
  * @author <a href="mailto:gnodet@gmail.com">Guillaume Nodet</a>
  */
 public final class Curses {
 
-    private static Object[] sv = new Object[26];
-    private static Object[] dv = new Object[26];
+    //capability strings come from a handful of terminfo descriptions,
+    //the limit only guards against callers passing arbitrary strings
+    private static final int CACHE_SIZE = 1024;
+    private static final Map<String, Template> CACHE = new ConcurrentHashMap<>();
+
+    private static final int LITERAL = 0;
+    private static final int PARAM = 1;
+    private static final int CONST = 2;
+    private static final int STORE = 3;
+    private static final int LOAD = 4;
+    private static final int LENGTH = 5;
+    private static final int ADD = 6;
+    private static final int SUB = 7;
+    private static final int MUL = 8;
+    private static final int DIV = 9;
+    private static final int MOD = 10;
+    private static final int BIT_AND = 11;
+    private static final int BIT_OR = 12;
+    private static final int BIT_XOR = 13;
+    private static final int EQ = 14;
+    private static final int GT = 15;
+    private static final int LT = 16;
+    private static final int AND = 17;
+    private static final int OR = 18;
+    private static final int NOT = 19;
+    private static final int COMPLEMENT = 20;
+    private static final int INCREMENT = 21;
+    private static final int PRINT = 22;
+    private static final int PRINT_CHAR = 23;
+    private static final int JUMP_IF_ZERO = 24;
+    private static final int JUMP = 25;
 
-    private static final int IFTE_NONE = 0;
-    private static final int IFTE_IF = 1;
-    private static final int IFTE_THEN = 2;
-    private static final int IFTE_ELSE = 3;
+    private static final int MAX_PARAMS = 9;
+    //a-z are dynamic, A-Z static variables
+    private static final int VARIABLES = 52;
 
     private Curses() {
     }
@@ -50,315 +88,606 @@ public final class Curses {
      * @throws IOException if an error occurs
      */
     public static void tputs(Writer out, String str, Object... params) throws IOException {
-        int index = 0;
-        int length = str.length();
-        int ifte = IFTE_NONE;
-        boolean exec = true;
-        Stack<Object> stack = new Stack<Object>();
-        while (index < length) {
-            char ch = str.charAt(index++);
+        int[] values = new int[params.length];
+        for (int i = 0; i < params.length; i++) {
+            values[i] = toInteger(params[i]);
+        }
+        compile(str).tputs(out, values);
+    }
+
+    /**
+     * Compile the given capability string. Compiled templates are cached, so
+     * calling this for the same capability again is cheap.
+     *
+     * @param str the capability
+     * @return the compiled capability
+     * @throws IllegalArgumentException if the capability is malformed
+     * @throws UnsupportedOperationException if the capability uses an unsupported operation
+     */
+    public static Template compile(String str) {
+        Template template = CACHE.get(str);
+        if (template == null) {
+            template = new Compiler(str).compile();
+            if (CACHE.size() < CACHE_SIZE) {
+                CACHE.putIfAbsent(str, template);
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Compile the given capability string without caching it, for callers that keep
+     * the template themselves.
+     */
+    static Template compileUncached(String str) {
+        return new Compiler(str).compile();
+    }
+
+    private static int toInteger(Object pop) {
+        if (pop instanceof Number) {
+            return ((Number) pop).intValue();
+        } else if (pop instanceof Boolean) {
+            return (Boolean) pop ? 1 : 0;
+        } else {
+            return Integer.valueOf(pop.toString());
+        }
+    }
+
+    /**
+     * A compiled capability string.
+     *
+     * Parameters that are not given are treated as 0, as are division by zero
+     * and unset variables. Static variables (%PA-%PZ) only live for the
+     * duration of one call.
+     */
+    public static final class Template {
+
+        private final int[] code;
+        private final int[] literals;
+        private final int stackSize;
+        private final boolean variables;
+        //the expanded template if it do not depend on any parameters
+        private final int[] constant;
+
+        private Template(int[] code, int[] literals, int stackSize, boolean variables) {
+            this.code = code;
+            this.literals = literals;
+            this.stackSize = stackSize;
+            this.variables = variables;
+            if (code.length == 0) {
+                constant = new int[0];
+            } else if (code.length == 3 && code[0] == LITERAL) {
+                constant = Arrays.copyOfRange(literals, code[1], code[1] + code[2]);
+            } else {
+                constant = null;
+            }
+        }
+
+        /**
+         * @return true if the output do not depend on any parameters
+         */
+        public boolean isConstant() {
+            return constant != null;
+        }
+
+        /**
+         * Expand the template with the given parameters.
+         *
+         * @param params parameters
+         * @return the expanded template as code points
+         */
+        public int[] toInts(int... params) {
+            if (constant != null) {
+                return constant.clone();
+            }
+            Sink sink = new Sink();
+            expand(sink, params);
+            return sink.toArray();
+        }
+
+        /**
+         * Expand the template with the given parameters.
+         *
+         * @param out receives the expanded template, one code point at a time
+         * @param params parameters
+         */
+        public void expand(IntConsumer out, int... params) {
+            int[] p = Arrays.copyOf(params, Math.max(params.length, MAX_PARAMS));
+            int[] stack = new int[stackSize];
+            int[] vars = variables ? new int[VARIABLES] : null;
+            int sp = 0;
+            int pc = 0;
+            while (pc < code.length) {
+                int op = code[pc++];
+                switch (op) {
+                    case LITERAL: {
+                        int start = code[pc++];
+                        int end = start + code[pc++];
+                        for (int i = start; i < end; i++) {
+                            out.accept(literals[i]);
+                        }
+                        break;
+                    }
+                    case PARAM:
+                        stack[sp++] = p[code[pc++]];
+                        break;
+                    case CONST:
+                        stack[sp++] = code[pc++];
+                        break;
+                    case STORE:
+                        vars[code[pc++]] = stack[--sp];
+                        break;
+                    case LOAD:
+                        stack[sp++] = vars[code[pc++]];
+                        break;
+                    case LENGTH:
+                        stack[sp - 1] = Integer.toString(stack[sp - 1]).length();
+                        break;
+                    case NOT:
+                        stack[sp - 1] = stack[sp - 1] == 0 ? 1 : 0;
+                        break;
+                    case COMPLEMENT:
+                        stack[sp - 1] = ~stack[sp - 1];
+                        break;
+                    case INCREMENT:
+                        p[0]++;
+                        p[1]++;
+                        break;
+                    case PRINT: {
+                        int radix = code[pc++];
+                        int width = code[pc++];
+                        int flags = code[pc++];
+                        print(out, stack[--sp], radix, width, flags);
+                        break;
+                    }
+                    case PRINT_CHAR:
+                        out.accept(stack[--sp]);
+                        break;
+                    case JUMP_IF_ZERO: {
+                        int target = code[pc++];
+                        if (stack[--sp] == 0) {
+                            pc = target;
+                        }
+                        break;
+                    }
+                    case JUMP:
+                        pc = code[pc];
+                        break;
+                    default: {
+                        int v2 = stack[--sp];
+                        int v1 = stack[sp - 1];
+                        stack[sp - 1] = apply(op, v1, v2);
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Expand the template with the given parameters.
+         *
+         * @param out the output stream
+         * @param params parameters
+         * @throws IOException if an error occurs
+         */
+        public void tputs(Writer out, int... params) throws IOException {
+            for (int c : toInts(params)) {
+                if (Character.isBmpCodePoint(c)) {
+                    out.write(c);
+                } else {
+                    out.write(Character.toChars(c));
+                }
+            }
+        }
+
+        private static int apply(int op, int v1, int v2) {
+            switch (op) {
+                case ADD:
+                    return v1 + v2;
+                case SUB:
+                    return v1 - v2;
+                case MUL:
+                    return v1 * v2;
+                case DIV:
+                    return v2 == 0 ? 0 : v1 / v2;
+                case MOD:
+                    return v2 == 0 ? 0 : v1 % v2;
+                case BIT_AND:
+                    return v1 & v2;
+                case BIT_OR:
+                    return v1 | v2;
+                case BIT_XOR:
+                    return v1 ^ v2;
+                case EQ:
+                    return v1 == v2 ? 1 : 0;
+                case GT:
+                    return v1 > v2 ? 1 : 0;
+                case LT:
+                    return v1 < v2 ? 1 : 0;
+                case AND:
+                    return v1 != 0 && v2 != 0 ? 1 : 0;
+                case OR:
+                    return v1 != 0 || v2 != 0 ? 1 : 0;
+                default:
+                    throw new IllegalStateException("Unknown operation: " + op);
+            }
+        }
+
+        private static void print(IntConsumer out, int value, int radix, int width, int flags) {
+            String str = Integer.toString(value, radix);
+            if ((flags & Compiler.UPPER) != 0) {
+                str = str.toUpperCase();
+            }
+            int pad = (flags & Compiler.ZERO_PAD) != 0 ? '0' : ' ';
+            int start = 0;
+            if (pad == '0' && value < 0 && width > str.length()) {
+                out.accept('-');
+                start = 1;
+            }
+            for (int i = str.length(); i < width; i++) {
+                out.accept(pad);
+            }
+            for (int i = start; i < str.length(); i++) {
+                out.accept(str.charAt(i));
+            }
+        }
+    }
+
+    private static final class Sink implements IntConsumer {
+        private int[] data = new int[16];
+        private int size;
+
+        @Override
+        public void accept(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    private static final class Compiler {
+
+        static final int UPPER = 1;
+        static final int ZERO_PAD = 2;
+
+        private final String str;
+        private int index;
+        private final Sink code = new Sink();
+        private final Sink literals = new Sink();
+        private int literalStart;
+        //stack depth at the current instruction, the lowest of the paths that reach it
+        private int depth;
+        private int maxDepth;
+        private boolean variables;
+        private final List<Conditional> conditionals = new ArrayList<>();
+
+        Compiler(String str) {
+            this.str = str;
+        }
+
+        Template compile() {
+            int length = str.length();
+            while (index < length) {
+                char ch = str.charAt(index++);
+                switch (ch) {
+                    case '\\':
+                        escape(next());
+                        break;
+                    case '^':
+                        ch = next();
+                        literal(ch == '?' ? 127 : (ch - '@') & 0x7F);
+                        break;
+                    case '%':
+                        percent(next());
+                        break;
+                    case '$':
+                        if (index < length && str.charAt(index) == '<') {
+                            // We don't honour delays, just skip
+                            while (next() != '>');
+                        } else {
+                            literal(ch);
+                        }
+                        break;
+                    default:
+                        literal(ch);
+                        break;
+                }
+            }
+            if (!conditionals.isEmpty()) {
+                throw new IllegalArgumentException("Unterminated %? in: " + str);
+            }
+            flush();
+            return new Template(code.toArray(), literals.toArray(), maxDepth, variables);
+        }
+
+        private char next() {
+            if (index >= str.length()) {
+                throw new IllegalArgumentException("Unexpected end of capability: " + str);
+            }
+            return str.charAt(index++);
+        }
+
+        private void escape(char ch) {
+            if (ch >= '0' && ch <= '7') {
+                int value = ch - '0';
+                for (int i = 0; i < 2 && index < str.length()
+                        && str.charAt(index) >= '0' && str.charAt(index) <= '7'; i++) {
+                    value = value * 8 + (str.charAt(index++) - '0');
+                }
+                // terminfo use \0 for null, but write it as \200
+                literal(value == 0 ? 0200 : value);
+                return;
+            }
             switch (ch) {
+                case 'e':
+                case 'E':
+                    literal(27);
+                    break;
+                case 'n':
+                case 'l':
+                    literal('\n');
+                    break;
+                case 'r':
+                    literal('\r');
+                    break;
+                case 't':
+                    literal('\t');
+                    break;
+                case 'b':
+                    literal('\b');
+                    break;
+                case 'f':
+                    literal('\f');
+                    break;
+                case 's':
+                    literal(' ');
+                    break;
+                case ':':
+                case '^':
                 case '\\':
-                    ch = str.charAt(index++);
-                    if (ch >= '0' && ch <= '9') {
-                        throw new UnsupportedOperationException(); // todo
-                    } else {
-                        switch (ch) {
-                            case 'e':
-                            case 'E':
-                                if (exec) {
-                                    out.write(27); // escape
-                                }
-                                break;
-                            case 'n':
-                                out.write('\n');
-                                break;
-//                        case 'l':
-//                            rawPrint('\l');
-//                            break;
-                            case 'r':
-                                if (exec) {
-                                    out.write('\r');
-                                }
-                                break;
-                            case 't':
-                                if (exec) {
-                                    out.write('\t');
-                                }
-                                break;
-                            case 'b':
-                                if (exec) {
-                                    out.write('\b');
-                                }
-                                break;
-                            case 'f':
-                                if (exec) {
-                                    out.write('\f');
-                                }
-                                break;
-                            case 's':
-                                if (exec) {
-                                    out.write(' ');
-                                }
-                                break;
-                            case ':':
-                            case '^':
-                            case '\\':
-                                if (exec) {
-                                    out.write(ch);
-                                }
-                                break;
-                            default:
-                                throw new IllegalArgumentException();
-                        }
+                case ',':
+                    literal(ch);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown escape \\" + ch + " in: " + str);
+            }
+        }
+
+        private void percent(char ch) {
+            switch (ch) {
+                case '%':
+                    literal('%');
+                    break;
+                case 'p':
+                    ch = next();
+                    if (ch < '1' || ch > '9') {
+                        throw new IllegalArgumentException("Unknown parameter %p" + ch + " in: " + str);
                     }
+                    emit(0, 1, PARAM, ch - '1');
+                    break;
+                case 'P':
+                    variables = true;
+                    emit(1, 0, STORE, variable(next()));
+                    break;
+                case 'g':
+                    variables = true;
+                    emit(0, 1, LOAD, variable(next()));
+                    break;
+                case '\'':
+                    emit(0, 1, CONST, next());
+                    if (next() != '\'') {
+                        throw new IllegalArgumentException("Unterminated character constant in: " + str);
+                    }
+                    break;
+                case '{': {
+                    int start = index;
+                    while (next() != '}');
+                    try {
+                        emit(0, 1, CONST, Integer.parseInt(str.substring(start, index - 1)));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid constant in: " + str, e);
+                    }
+                    break;
+                }
+                case 'l':
+                    emit(1, 1, LENGTH);
+                    break;
+                case '+':
+                    emit(2, 1, ADD);
+                    break;
+                case '-':
+                    emit(2, 1, SUB);
+                    break;
+                case '*':
+                    emit(2, 1, MUL);
+                    break;
+                case '/':
+                    emit(2, 1, DIV);
+                    break;
+                case 'm':
+                    emit(2, 1, MOD);
+                    break;
+                case '&':
+                    emit(2, 1, BIT_AND);
+                    break;
+                case '|':
+                    emit(2, 1, BIT_OR);
                     break;
                 case '^':
-                    ch = str.charAt(index++);
-                    if (exec) {
-                        out.write(ch - '@');
+                    emit(2, 1, BIT_XOR);
+                    break;
+                case '=':
+                    emit(2, 1, EQ);
+                    break;
+                case '>':
+                    emit(2, 1, GT);
+                    break;
+                case '<':
+                    emit(2, 1, LT);
+                    break;
+                case 'A':
+                    emit(2, 1, AND);
+                    break;
+                case 'O':
+                    emit(2, 1, OR);
+                    break;
+                case '!':
+                    emit(1, 1, NOT);
+                    break;
+                case '~':
+                    emit(1, 1, COMPLEMENT);
+                    break;
+                case 'i':
+                    emit(0, 0, INCREMENT);
+                    break;
+                case '?':
+                    conditionals.add(new Conditional());
+                    break;
+                case 't': {
+                    Conditional conditional = currentConditional(ch);
+                    if (conditional.jumps.data[0] != -1) {
+                        throw new IllegalArgumentException("Unexpected %t in: " + str);
                     }
+                    emit(1, 0, JUMP_IF_ZERO, -1);
+                    conditional.jumps.data[0] = code.size - 1;
+                    conditional.elseDepth = depth;
                     break;
-                case '%':
-                    ch = str.charAt(index++);
-                    switch (ch) {
-                        case '%':
-                            if (exec) {
-                                out.write('%');
-                            }
-                            break;
-                        case 'p':
-                            ch = str.charAt(index++);
-                            if (exec) {
-                                stack.push(params[ch - '1']);
-                            }
-                            break;
-                        case 'P':
-                            ch = str.charAt(index++);
-                            if (ch >= 'a' && ch <= 'z') {
-                                if (exec) {
-                                    dv[ch - 'a'] = stack.pop();
-                                }
-                            } else if (ch >= 'A' && ch <= 'Z') {
-                                if (exec) {
-                                    sv[ch - 'A'] = stack.pop();
-                                }
-                            } else {
-                                throw new IllegalArgumentException();
-                            }
-                            break;
-                        case 'g':
-                            ch = str.charAt(index++);
-                            if (ch >= 'a' && ch <= 'z') {
-                                if (exec) {
-                                    stack.push(dv[ch - 'a']);
-                                }
-                            } else if (ch >= 'A' && ch <= 'Z') {
-                                if (exec) {
-                                    stack.push(sv[ch - 'A']);
-                                }
-                            } else {
-                                throw new IllegalArgumentException();
-                            }
-                            break;
-                        case '\'':
-                            ch = str.charAt(index++);
-                            if (exec) {
-                                stack.push((int) ch);
-                            }
-                            ch = str.charAt(index++);
-                            if (ch != '\'') {
-                                throw new IllegalArgumentException();
-                            }
-                            break;
-                        case '{':
-                            int start = index;
-                            while (str.charAt(index++) != '}');
-                            if (exec) {
-                                int v = Integer.valueOf(str.substring(start, index - 1));
-                                stack.push(v);
-                            }
-                            break;
-                        case 'l':
-                            if (exec) {
-                                stack.push(stack.pop().toString().length());
-                            }
-                            break;
-                        case '+':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 + v2);
-                            }
-                            break;
-                        case '-':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 - v2);
-                            }
-                            break;
-                        case '*':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 * v2);
-                            }
-                            break;
-                        case '/':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 / v2);
-                            }
-                            break;
-                        case 'm':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 % v2);
-                            }
-                            break;
-                        case '&':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 & v2);
-                            }
-                            break;
-                        case '|':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 | v2);
-                            }
-                            break;
-                        case '^':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 ^ v2);
-                            }
-                            break;
-                        case '=':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 == v2);
-                            }
-                            break;
-                        case '>':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 > v2);
-                            }
-                            break;
-                        case '<':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 < v2);
-                            }
-                            break;
-                        case 'A':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 != 0 && v2 != 0);
-                            }
-                            break;
-                        case '!':
-                            if (exec) {
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 == 0);
-                            }
-                            break;
-                        case '~':
-                            if (exec) {
-                                int v1 = toInteger(stack.pop());
-                                stack.push(~v1);
-                            }
-                            break;
-                        case 'O':
-                            if (exec) {
-                                int v2 = toInteger(stack.pop());
-                                int v1 = toInteger(stack.pop());
-                                stack.push(v1 != 0 || v2 != 0);
-                            }
-                            break;
-                        case '?':
-                            if (ifte != IFTE_NONE) {
-                                throw new IllegalArgumentException();
-                            } else {
-                                ifte = IFTE_IF;
-                            }
-                            break;
-                        case 't':
-                            if (ifte != IFTE_IF && ifte != IFTE_ELSE) {
-                                throw new IllegalArgumentException();
-                            } else {
-                                ifte = IFTE_THEN;
-                            }
-                            exec = toInteger(stack.pop()) != 0;
-                            break;
-                        case 'e':
-                            if (ifte != IFTE_THEN) {
-                                throw new IllegalArgumentException();
-                            } else {
-                                ifte = IFTE_ELSE;
-                            }
-                            exec = !exec;
-                            break;
-                        case ';':
-                            if (ifte == IFTE_NONE || ifte == IFTE_IF) {
-                                throw new IllegalArgumentException();
-                            } else {
-                                ifte = IFTE_NONE;
-                            }
-                            exec = true;
-                            break;
-                        case 'i':
-                            if (params.length >= 1) {
-                                params[0] = toInteger(params[0]) + 1;
-                            }
-                            if (params.length >= 2) {
-                                params[1] = toInteger(params[1]) + 1;
-                            }
-                            break;
-                        case 'd':
-                            out.write(Integer.toString(toInteger(stack.pop())));
-                            break;
-                        default:
-                            throw new UnsupportedOperationException();
+                }
+                case 'e': {
+                    Conditional conditional = currentConditional(ch);
+                    Sink jumps = conditional.jumps;
+                    if (jumps.data[0] == -1) {
+                        throw new IllegalArgumentException("Unexpected %e in: " + str);
                     }
+                    emit(0, 0, JUMP, -1);
+                    jumps.accept(code.size - 1);
+                    code.data[jumps.data[0]] = code.size;
+                    jumps.data[0] = -1;
+                    conditional.endDepth = Math.min(conditional.endDepth, depth);
+                    depth = conditional.elseDepth;
                     break;
-                case '$':
-                    if (str.charAt(index) == '<') {
-                        // We don't honour delays, just skip
-                        while (str.charAt(index++) != '>');
-                    } else {
-                        if (exec) {
-                            out.write(ch);
-                        }
+                }
+                case ';': {
+                    Conditional conditional = currentConditional(ch);
+                    Sink jumps = conditional.jumps;
+                    flush();
+                    if (jumps.data[0] != -1) {
+                        code.data[jumps.data[0]] = code.size;
+                        conditional.endDepth = Math.min(conditional.endDepth, conditional.elseDepth);
                     }
+                    for (int i = 1; i < jumps.size; i++) {
+                        code.data[jumps.data[i]] = code.size;
+                    }
+                    depth = Math.min(conditional.endDepth, depth);
+                    conditionals.remove(conditionals.size() - 1);
+                    break;
+                }
+                case 'c':
+                    emit(1, 0, PRINT_CHAR);
                     break;
                 default:
-                    if (exec) {
-                        out.write(ch);
-                    }
+                    format(ch);
                     break;
             }
         }
+
+        private void format(char ch) {
+            int flags = 0;
+            if (ch == ':') {
+                ch = next();
+            }
+            if (ch == '0') {
+                flags |= ZERO_PAD;
+                ch = next();
+            }
+            int width = 0;
+            while (ch >= '0' && ch <= '9') {
+                width = width * 10 + (ch - '0');
+                ch = next();
+            }
+            switch (ch) {
+                case 'd':
+                case 's':
+                    emit(1, 0, PRINT, 10, width, flags);
+                    break;
+                case 'o':
+                    emit(1, 0, PRINT, 8, width, flags);
+                    break;
+                case 'x':
+                    emit(1, 0, PRINT, 16, width, flags);
+                    break;
+                case 'X':
+                    emit(1, 0, PRINT, 16, width, flags | UPPER);
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Unsupported operation %" + ch + " in: " + str);
+            }
+        }
+
+        private int variable(char ch) {
+            if (ch >= 'a' && ch <= 'z') {
+                return ch - 'a';
+            } else if (ch >= 'A' && ch <= 'Z') {
+                return 26 + ch - 'A';
+            } else {
+                throw new IllegalArgumentException("Unknown variable " + ch + " in: " + str);
+            }
+        }
+
+        private Conditional currentConditional(char ch) {
+            if (conditionals.isEmpty()) {
+                throw new IllegalArgumentException("Unexpected %" + ch + " in: " + str);
+            }
+            return conditionals.get(conditionals.size() - 1);
+        }
+
+        private void literal(int ch) {
+            literals.accept(ch);
+        }
+
+        private void flush() {
+            if (literals.size > literalStart) {
+                code.accept(LITERAL);
+                code.accept(literalStart);
+                code.accept(literals.size - literalStart);
+                literalStart = literals.size;
+            }
+        }
+
+        /**
+         * @param pops number of values the instruction pops from the stack
+         * @param pushes number of values the instruction pushes to the stack
+         */
+        private void emit(int pops, int pushes, int op, int... args) {
+            if (depth < pops) {
+                throw new IllegalArgumentException("Stack underflow in: " + str);
+            }
+            depth += pushes - pops;
+            maxDepth = Math.max(maxDepth, depth);
+            flush();
+            code.accept(op);
+            for (int arg : args) {
+                code.accept(arg);
+            }
+        }
     }
 
-    private static int toInteger(Object pop) {
-        if (pop instanceof Number) {
-            return ((Number) pop).intValue();
-        } else if (pop instanceof Boolean) {
-            return (Boolean) pop ? 1 : 0;
-        } else {
-            return Integer.valueOf(pop.toString());
+    //an open %? block
+    private static final class Conditional {
+        //the pending %t jump followed by the %e jumps
+        final Sink jumps = new Sink();
+        //stack depth when the %t condition is false
+        int elseDepth;
+        //lowest stack depth of the branches that jump to %;
+        int endDepth = Integer.MAX_VALUE;
+
+        Conditional() {
+            jumps.accept(-1);
         }
     }
 
@@ -24,9 +24,9 @@ import org.aesh.terminal.tty.Capability;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -37,7 +37,8 @@ import java.util.regex.Pattern;
  */
 public final class InfoCmp {
 
-    private static final Map<String, String> CAPS = new HashMap<>();
+    private static final Map<String, String> CAPS = new ConcurrentHashMap<>();
+    private static final Pattern CAPABILITY = Pattern.compile("\\s*(([^,]|\\\\,)+)\\s*[,$]");
 
     private InfoCmp() {
     }
@@ -47,29 +48,32 @@ public final class InfoCmp {
         if (caps == null) {
             Process p = new ProcessBuilder(OSUtils.INFOCMP_COMMAND, terminal).start();
             caps = ExecHelper.waitAndCapture(p);
-            CAPS.put(terminal, caps);
+            String previous = CAPS.putIfAbsent(terminal, caps);
+            if(previous != null)
+                caps = previous;
         }
         return caps;
     }
 
     public static String getDefaultInfoCmp(String terminal) {
-        if(terminal.toLowerCase().contains("windows")) {
-            return readDefaultInfoCmp("windows_caps.src");
-        }
-        else if(terminal.toLowerCase().contains("xterm_256color")) {
-            return readDefaultInfoCmp("xterm_256color_caps.src");
-        }
-        else if(terminal.toLowerCase().contains("xterm")) {
-            return readDefaultInfoCmp("xterm_caps.src");
-        }
-        else if(terminal.toLowerCase().contains("vt100")) {
-            return readDefaultInfoCmp("vt100_caps.src");
-        }
-         else
-            return readDefaultInfoCmp("ansi_caps.src");
+        return readDefaultInfoCmp(getDefaultInfoCmpResource(terminal));
+    }
+
+    static String getDefaultInfoCmpResource(String terminal) {
+        String lower = terminal == null ? "" : terminal.toLowerCase();
+        if(lower.contains("windows"))
+            return "windows_caps.src";
+        else if(lower.contains("xterm_256color"))
+            return "xterm_256color_caps.src";
+        else if(lower.contains("xterm"))
+            return "xterm_caps.src";
+        else if(lower.contains("vt100"))
+            return "vt100_caps.src";
+        else
+            return "ansi_caps.src";
     }
 
-    private static String readDefaultInfoCmp(String filename) {
+    static String readDefaultInfoCmp(String filename) {
         ByteArrayOutputStream res = new ByteArrayOutputStream();
         try (InputStream in = InfoCmp.class.getResourceAsStream(filename)) {
             byte[] buffer = new byte[256];
@@ -100,7 +104,7 @@ public final class InfoCmp {
 
         String[] lines = capabilities.split("\n");
         for (int i = 1; i < lines.length; i++) {
-            Matcher m = Pattern.compile("\\s*(([^,]|\\\\,)+)\\s*[,$]").matcher(lines[i]);
+            Matcher m = CAPABILITY.matcher(lines[i]);
             while (m.find()) {
                 String cap = m.group(1);
                 if (cap.contains("#")) {
@@ -22,20 +22,13 @@ package org.aesh.terminal.utils;
 import org.aesh.terminal.tty.Capability;
 
 import java.io.StringWriter;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
 
 /**
  * @author <a href=mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class InfoCmpHelper {
 
-    private static boolean initialized = false;
-    private static Set<Capability> bools = new HashSet<>();
-    private static Map<Capability, Integer> ints = new HashMap<>();
-    private static Map<Capability, String> strings = new HashMap<>();
+    private static volatile TermInfo termInfo;
 
     public static int[] getCurrentTranslatedCapabilityAsInts(String cap, int[] defaultValue) {
         String s = getCurrentTranslatedCapability(cap, new String(defaultValue, 0, defaultValue.length));
@@ -46,18 +39,18 @@ public class InfoCmpHelper {
 
     public static String getCurrentTranslatedCapability(String cap, String defaultValue) {
         try {
-            if (!initialized) {
+            TermInfo info = termInfo;
+            if (info == null) {
                 String term = System.getenv("TERM");
                 if (term == null) {
                     term = "xterm-256color";
                 }
-                String infocmp = InfoCmp.getInfoCmp(term);
-                InfoCmp.parseInfoCmp(infocmp, bools, ints, strings);
-                initialized = true;
+                info = TermInfo.parse(term, InfoCmp.getInfoCmp(term));
+                termInfo = info;
             }
             Capability capability = Capability.byName(cap);
             if (capability != null) {
-                String capStr = strings.get(capability);
+                String capStr = info.getStringCapability(capability);
                 if (capStr != null) {
                     StringWriter sw = new StringWriter();
                     Curses.tputs(sw, capStr);
@@ -0,0 +1,260 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.terminal.utils;
+
+import org.aesh.terminal.tty.Capability;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable, parsed terminfo description of a terminal type.
+ *
+ * Every string capability is compiled to its code points and to a
+ * {@link Curses.Template} when the entry is created, so devices backed by a
+ * TermInfo never parse capability strings at runtime. Entries for the bundled terminal descriptions are shared by all
+ * devices in the process, see {@link #forType(String)}.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public final class TermInfo {
+
+    private static final Pattern A = Pattern.compile("^\\\\([0-9]{1,3})");
+    private static final Pattern B = Pattern.compile("^\\\\x([0-9,A-F,a-f]{1,2})");
+
+    //keyed by the bundled description, not the terminal type, remote clients
+    //can send any TERM value and we do not want the registry to grow with them
+    private static final Map<String, TermInfo> DEFAULTS = new ConcurrentHashMap<>();
+
+    private final String type;
+    private final Set<Capability> bools;
+    private final Map<Capability, Integer> ints;
+    private final Map<Capability, String> strings;
+    private final Map<Capability, int[]> compiled;
+    private final Map<Capability, Curses.Template> templates;
+
+    private TermInfo(String type, Set<Capability> bools,
+                     Map<Capability, Integer> ints, Map<Capability, String> strings) {
+        this.type = type;
+        this.bools = bools.isEmpty() ? Collections.emptySet() :
+                Collections.unmodifiableSet(EnumSet.copyOf(bools));
+        this.ints = Collections.unmodifiableMap(ints.isEmpty() ?
+                new EnumMap<>(Capability.class) : new EnumMap<>(ints));
+        this.strings = Collections.unmodifiableMap(strings.isEmpty() ?
+                new EnumMap<>(Capability.class) : new EnumMap<>(strings));
+        Map<Capability, int[]> seqs = new EnumMap<>(Capability.class);
+        Map<Capability, Curses.Template> compiledTemplates = new EnumMap<>(Capability.class);
+        for(Map.Entry<Capability, String> entry : this.strings.entrySet()) {
+            seqs.put(entry.getKey(), parseKeySeq(entry.getValue()));
+            try {
+                compiledTemplates.put(entry.getKey(), Curses.compileUncached(entry.getValue()));
+            }
+            catch(IllegalArgumentException | UnsupportedOperationException ignored) {
+                //the error is reported if the capability is used
+            }
+        }
+        this.compiled = seqs;
+        this.templates = compiledTemplates;
+    }
+
+    /**
+     * Returns the shared entry for the bundled description matching the given
+     * terminal type, parsing it the first time it is requested.
+     *
+     * @param terminal terminal type, eg: the value of TERM
+     * @return parsed capabilities, never null
+     */
+    public static TermInfo forType(String terminal) {
+        String resource = InfoCmp.getDefaultInfoCmpResource(terminal);
+        return DEFAULTS.computeIfAbsent(resource,
+                r -> parse(r, InfoCmp.readDefaultInfoCmp(r)));
+    }
+
+    /**
+     * Parse the given infocmp output. The result is not cached.
+     *
+     * @param type terminal type
+     * @param infocmp output from infocmp, may be null
+     * @return parsed capabilities
+     */
+    public static TermInfo parse(String type, String infocmp) {
+        Set<Capability> bools = new HashSet<>();
+        Map<Capability, Integer> ints = new HashMap<>();
+        Map<Capability, String> strings = new HashMap<>();
+        if(infocmp != null)
+            InfoCmp.parseInfoCmp(infocmp, bools, ints, strings);
+        return new TermInfo(type, bools, ints, strings);
+    }
+
+    public String type() {
+        return type;
+    }
+
+    public Set<Capability> getBooleanCapabilities() {
+        return bools;
+    }
+
+    public Map<Capability, Integer> getNumericCapabilities() {
+        return ints;
+    }
+
+    public Map<Capability, String> getStringCapabilities() {
+        return strings;
+    }
+
+    public boolean getBooleanCapability(Capability capability) {
+        return bools.contains(capability);
+    }
+
+    public Integer getNumericCapability(Capability capability) {
+        return ints.get(capability);
+    }
+
+    public String getStringCapability(Capability capability) {
+        return strings.get(capability);
+    }
+
+    /**
+     * The returned array is shared and must not be modified.
+     *
+     * @param capability capability
+     * @return the compiled capability or null if the terminal do not support it
+     */
+    public int[] getStringCapabilityAsInts(Capability capability) {
+        return compiled.get(capability);
+    }
+
+    /**
+     * @param capability capability
+     * @return the compiled capability, null if the terminal do not support it
+     *         or it can not be compiled
+     */
+    public Curses.Template getTemplate(Capability capability) {
+        return templates.get(capability);
+    }
+
+    /**
+     * Translate a capability or key sequence, eg: "\E[H" or "^M" to code points.
+     *
+     * @param keyseq sequence
+     * @return code points
+     */
+    public static int[] parseKeySeq(String keyseq) {
+        ArrayList<Integer> builder = new ArrayList<>();
+        while (keyseq.length() > 0) {
+            if (keyseq.startsWith("\\C-") && keyseq.length() > 3) {
+                int c = (Character.toUpperCase(keyseq.charAt(3)) - '@') & 0x7F;
+                builder.add(c);
+                keyseq = keyseq.substring(4);
+            }
+            else if (keyseq.startsWith("\\M-") && keyseq.length() > 3) {
+                int c = (Character.toUpperCase(keyseq.charAt(3)) - '@') & 0x7F;
+                builder.add(27);
+                builder.add(c);
+                keyseq = keyseq.substring(4);
+            }
+            else if(keyseq.startsWith("^") && keyseq.length() > 1) {
+                int c = (Character.toUpperCase(keyseq.charAt(1)) - '@') & 0x7F;
+                builder.add(c);
+                keyseq = keyseq.substring(2);
+            }
+            else if (keyseq.startsWith("\\e") || keyseq.startsWith("\\E")) {
+                builder.add(27);
+                keyseq = keyseq.substring(2);
+            }
+            else if (keyseq.startsWith("\\\\")) {
+                builder.add((int)'\\');
+                keyseq = keyseq.substring(2);
+            }
+            else if (keyseq.startsWith("\\\"")) {
+                builder.add((int)'"');
+                keyseq = keyseq.substring(2);
+            }
+            else if (keyseq.startsWith("\\'")) {
+                builder.add((int)'\'');
+                keyseq = keyseq.substring(2);
+            }
+            else if (keyseq.startsWith("\\a")) {
+                builder.add(7);
+                keyseq = keyseq.substring(2);
+            }
+            else if (keyseq.startsWith("\\b")) {
+                builder.add(8);
+                keyseq = keyseq.substring(2);
+            }
+            else if (keyseq.startsWith("\\d")) {
+                builder.add(127);
+                keyseq = keyseq.substring(2);
+            }
+            else if (keyseq.startsWith("\\f")) {
+                builder.add(12);
+                keyseq = keyseq.substring(2);
+            }
+            else if (keyseq.startsWith("\\n")) {
+                builder.add(10);
+                keyseq = keyseq.substring(2);
+            }
+            else if (keyseq.startsWith("\\r")) {
+                builder.add(13);
+                keyseq = keyseq.substring(2);
+            }
+            else if (keyseq.startsWith("\\t")) {
+                builder.add(9);
+                keyseq = keyseq.substring(2);
+            }
+            else if (keyseq.startsWith("\\v")) {
+                builder.add(11);
+                keyseq = keyseq.substring(2);
+            }
+            else {
+                Matcher matcher = A.matcher(keyseq);
+                if (matcher.find()) {
+                    builder.add(Integer.parseInt(matcher.group(1), 8));
+                    keyseq = keyseq.substring(matcher.end());
+                }
+                else {
+                    matcher = B.matcher(keyseq);
+                    if (matcher.find()) {
+                        builder.add(Integer.parseInt(matcher.group(1), 16));
+                        keyseq = keyseq.substring(matcher.end());
+                    }
+                    else {
+                        builder.add((int) keyseq.charAt(0));
+                        keyseq = keyseq.substring(1);
+                    }
+                }
+            }
+        }
+        int[] f = new int[builder.size()];
+        for (int i = 0;i < builder.size();i++) {
+            f[i] = builder.get(i);
+        }
+        return f;
+    }
+}
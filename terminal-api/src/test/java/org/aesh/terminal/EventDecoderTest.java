@@ -0,0 +1,65 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.terminal;
+
+import org.aesh.terminal.io.SliceConsumer;
+import org.aesh.terminal.tty.Signal;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class EventDecoderTest {
+
+    @Test
+    public void testSlices() {
+        List<String> input = new ArrayList<>();
+        List<Signal> signals = new ArrayList<>();
+        int[] data = new int[]{'x', 'f', 'o', 3, 'b', 4, 4, 'a', 'r', 'x'};
+        EventDecoder decoder = new EventDecoder();
+        decoder.setSignalHandler(signals::add);
+        decoder.setInputHandler(SliceConsumer.toConsumer((array, offset, length) -> {
+            assertSame(data, array);
+            input.add(new String(array, offset, length));
+        }));
+
+        decoder.accept(data, 1, data.length - 2);
+        assertEquals(Arrays.asList("fo", "b", "ar"), input);
+        assertEquals(Arrays.asList(Signal.INT, Signal.EOF, Signal.EOF), signals);
+    }
+
+    @Test
+    public void testQueue() {
+        List<String> input = new ArrayList<>();
+        EventDecoder decoder = new EventDecoder();
+        int[] data = new int[]{'f', 'o', 'o'};
+        decoder.accept(data, 0, 2);
+        data[0] = 'x';
+        decoder.setInputHandler(array -> input.add(new String(array, 0, array.length)));
+        assertEquals(Arrays.asList("fo"), input);
+    }
+}
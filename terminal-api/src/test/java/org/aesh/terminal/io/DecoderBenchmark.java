@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.terminal.io;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the Decoder with decoding through a CharsetDecoder and an IntBuffer
+ * the way it was done before.
+ * Run the main method with the test classpath of terminal-api.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecoderBenchmark {
+
+    @Param({"ascii", "mixed"})
+    public String input;
+
+    private byte[] data;
+    private Decoder decoder;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        StringBuilder builder = new StringBuilder();
+        while(builder.length() < 4096) {
+            if(input.equals("ascii"))
+                builder.append("ls -la /usr/local/bin | grep foo\r");
+            else
+                builder.append("æøå € 😀 foo\r");
+        }
+        data = builder.toString().getBytes(StandardCharsets.UTF_8);
+        decoder = new Decoder(512, StandardCharsets.UTF_8,
+                SliceConsumer.toConsumer((codePoints, offset, length) -> blackhole.consume(codePoints[offset])));
+    }
+
+    @Benchmark
+    public void decoder() {
+        decoder.write(data);
+    }
+
+    @Benchmark
+    public void charsetDecoder() {
+        CharsetDecoder charsetDecoder = StandardCharsets.UTF_8.newDecoder();
+        ByteBuffer bBuf = ByteBuffer.wrap(data);
+        CharBuffer cBuf = CharBuffer.allocate(512);
+        while(true) {
+            IntBuffer iBuf = IntBuffer.allocate(cBuf.capacity());
+            boolean underflow = charsetDecoder.decode(bBuf, cBuf, false).isUnderflow();
+            cBuf.flip();
+            while(cBuf.hasRemaining()) {
+                char c = cBuf.get();
+                if(Character.isSurrogate(c) && cBuf.hasRemaining())
+                    iBuf.put(Character.toCodePoint(c, cBuf.get()));
+                else
+                    iBuf.put(c);
+            }
+            int[] codePoints = new int[iBuf.position()];
+            iBuf.flip();
+            iBuf.get(codePoints);
+            blackhole.consume(codePoints);
+            cBuf.compact();
+            if(underflow)
+                break;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DecoderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -85,6 +85,52 @@ public class DecoderTest {
     assertEquals('\u20AC', (int)codePoints.get(0));
   }
 
+  @Test
+  public void testDecoderSplitSequence() {
+    final StringBuilder sb = new StringBuilder();
+    Decoder decoder = new Decoder(4, Charset.forName("UTF-8"), event -> {
+      for (int cp : event) {
+        sb.appendCodePoint(cp);
+      }
+    });
+    byte[] data = "a\uD83D\uDE00b\u00E6".getBytes(Charset.forName("UTF-8"));
+    for (byte b : data) {
+      decoder.write(new byte[]{b});
+    }
+    assertEquals("a\uD83D\uDE00b\u00E6", sb.toString());
+  }
+
+  @Test
+  public void testDecoderMalformed() {
+    //invalid start byte, too short sequence, overlong encoding and encoded surrogate
+    assertDecode(10, Arrays.asList("\uFFFDA\uFFFDB\uFFFD\uFFFD"),
+        0xFF, 65, 0xC3, 66, 0xC0, 0xAF, 0xED, 0xA0, 0x80);
+  }
+
+  @Test
+  public void testDecoderOtherCharset() {
+    final StringBuilder sb = new StringBuilder();
+    Decoder decoder = new Decoder(4, Charset.forName("UTF-16BE"), event -> {
+      for (int cp : event) {
+        sb.appendCodePoint(cp);
+      }
+    });
+    byte[] data = "ab\uD83D\uDE00c".getBytes(Charset.forName("UTF-16BE"));
+    for (byte b : data) {
+      decoder.write(new byte[]{b});
+    }
+    assertEquals("ab\uD83D\uDE00c", sb.toString());
+  }
+
+  @Test
+  public void testDecoderSlice() {
+    final List<String> chunks = new ArrayList<>();
+    Decoder decoder = new Decoder(4, Charset.forName("UTF-8"),
+        SliceConsumer.toConsumer((data, offset, length) -> chunks.add(new String(data, offset, length))));
+    decoder.write("ABCDE".getBytes(Charset.forName("UTF-8")));
+    assertEquals(Arrays.asList("ABCD", "E"), chunks);
+  }
+
   public static List<Integer> list(int... list) {
     ArrayList<Integer> result = new ArrayList<>(list.length);
     for (int i : list) {
@@ -21,9 +21,13 @@ package org.aesh.terminal.io;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -60,4 +64,45 @@ public class EncoderTest {
         decodeEndcode("foo bar!!??", new String[] {"foo ","bar!","!??"});
         decodeEndcode("\r", new String[] {"\r"});
     }
+
+    @Test
+    public void testCharsets() {
+        String text = "foo \u00e6\u00f8\u00e5 \u20ac \ud83d\ude00 bar";
+        for(Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1,
+                StandardCharsets.US_ASCII, StandardCharsets.UTF_16LE }) {
+            List<byte[]> result = new ArrayList<>();
+            Encoder encoder = new Encoder(charset, result::add);
+            encoder.accept(text.codePoints().toArray());
+            assertArrayEquals(charset.name(), text.getBytes(charset), result.get(0));
+        }
+    }
+
+    @Test
+    public void testEncodeRange() {
+        int[] input = "a\u00e6\u20acb".codePoints().toArray();
+        for(Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16LE }) {
+            List<byte[]> result = new ArrayList<>();
+            Encoder encoder = new Encoder(charset, result::add);
+            encoder.accept(input, 1, 2);
+            assertArrayEquals(charset.name(), "\u00e6\u20ac".getBytes(charset), result.get(0));
+        }
+    }
+
+    @Test
+    public void testEncodeToByteBuffer() {
+        int[] input = "a\u00e6\u20acb".codePoints().toArray();
+        for(Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16LE }) {
+            Encoder encoder = new Encoder(charset, bytes -> {});
+            ByteBuffer buffer = ByteBuffer.allocateDirect(5);
+            //the euro sign do not fit
+            assertEquals(charset.name(), 2, encoder.encode(input, 0, input.length, buffer));
+            assertEquals(charset.name(), "a\u00e6".getBytes(charset).length, buffer.position());
+            buffer.clear();
+            assertEquals(charset.name(), 2, encoder.encode(input, 2, 2, buffer));
+            buffer.flip();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            assertArrayEquals(charset.name(), "\u20acb".getBytes(charset), bytes);
+        }
+    }
 }
@@ -19,8 +19,12 @@
  */
 package org.aesh.terminal.tty;
 
+import org.aesh.terminal.io.Encoder;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -40,6 +44,26 @@ public class TtyOutputModeTest {
     assertOutput("a\r\nb\r\nc", "a\nb\nc");
   }
 
+  @Test
+  public void testSingleWritePerChunk() {
+    List<int[]> writes = new ArrayList<>();
+    TtyOutputMode out = new TtyOutputMode(writes::add);
+    out.accept(toCodePoints("a\nb\n\nc"));
+    assertEquals(1, writes.size());
+    assertEquals("a\r\nb\r\n\r\nc", fromCodePoints(writes.get(0)));
+  }
+
+  @Test
+  public void testEncodeWithoutCopy() {
+    List<byte[]> writes = new ArrayList<>();
+    TtyOutputMode out = new TtyOutputMode(new Encoder(StandardCharsets.UTF_8, writes::add));
+    out.accept(toCodePoints("a\n\u00e5\n"));
+    out.accept(toCodePoints("b\n"));
+    assertEquals(2, writes.size());
+    assertEquals("a\r\n\u00e5\r\n", new String(writes.get(0), StandardCharsets.UTF_8));
+    assertEquals("b\r\n", new String(writes.get(1), StandardCharsets.UTF_8));
+  }
+
   private void assertOutput(String expected, String actual) {
     Stream.Builder<int[]> builder = Stream.<int[]>builder();
     TtyOutputMode out = new TtyOutputMode(builder);
@@ -22,8 +22,19 @@ package org.aesh.terminal.utils;
 import org.junit.Test;
 
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author <a href="mailto:gnodet@gmail.com">Guillaume Nodet</a>
@@ -37,6 +48,98 @@ public class CursesTest {
 
     }
 
+    @Test
+    public void testCompile() {
+        Curses.Template cup = Curses.compile("\\E[%i%p1%d;%p2%dH");
+        assertSame(cup, Curses.compile("\\E[%i%p1%d;%p2%dH"));
+        assertFalse(cup.isConstant());
+        int[] params = {9, 19};
+        assertEquals("\033[10;20H", toString(cup.toInts(params)));
+        //%i must not change the parameters
+        assertArrayEquals(new int[]{9, 19}, params);
+
+        Curses.Template clear = Curses.compile("\\E[H\\E[2J$<50>");
+        assertTrue(clear.isConstant());
+        assertArrayEquals(new int[]{27, '[', 'H', 27, '[', '2', 'J'}, clear.toInts());
+
+        StringBuilder builder = new StringBuilder();
+        cup.expand(builder::appendCodePoint, 0, 0);
+        assertEquals("\033[1;1H", builder.toString());
+    }
+
+    @Test
+    public void testConditionals() throws Exception {
+        //setaf from xterm-256color
+        String setaf = "\\E[%?%p1%{8}%<%t3%p1%d%e%p1%{16}%<%t9%p1%{8}%-%d%e38;5;%p1%d%;m";
+        assertEquals("\033[31m", tputs(setaf, 1));
+        assertEquals("\033[94m", tputs(setaf, 12));
+        assertEquals("\033[38;5;200m", tputs(setaf, 200));
+
+        assertEquals("yes", tputs("%?%p1%p2%=%tyes%eno%;", 4, 4));
+        assertEquals("no", tputs("%?%p1%p2%=%tyes%eno%;", 4, 5));
+        assertEquals("ab", tputs("a%?%p1%tx%;b", 0));
+        assertEquals("a[x]b", tputs("a%?%p1%t[%?%p2%tx%ey%;]%;b", 1, 1));
+    }
+
+    @Test
+    public void testOperations() throws Exception {
+        assertEquals("7", tputs("%p1%p2%+%d", 3, 4));
+        assertEquals("-1", tputs("%p1%p2%-%d", 3, 4));
+        assertEquals("0", tputs("%p1%{0}%/%d", 3));
+        assertEquals("A", tputs("%'A'%c"));
+        assertEquals("42", tputs("%{42}%Pa%ga%d"));
+        assertEquals("3", tputs("%{100}%l%d"));
+        assertEquals("ff 0A 017", tputs("%p1%x %p2%02X %p3%03o", 255, 10, 15));
+        assertEquals("50%", tputs("%p1%d%%", 50));
+        assertEquals("\r\n", tputs("^M\\n"));
+    }
+
+    @Test
+    public void testStackUnderflow() {
+        for (String cap : new String[]{"%d", "%p1%+", "%?%t%;", "%c", "%Pa", "%!",
+                "%?%p1%t%p2%;%d", "%?%p1%t%p2%e%;%d"}) {
+            try {
+                Curses.compile(cap);
+                fail("Expected stack underflow in: " + cap);
+            }
+            catch (IllegalArgumentException expected) {
+                assertTrue(expected.getMessage().startsWith("Stack underflow"));
+            }
+        }
+        //each branch push one value
+        assertEquals("2", toString(Curses.compile("%?%p1%t%p2%e%p3%;%d").toInts(1, 2, 3)));
+        assertEquals("3", toString(Curses.compile("%?%p1%t%p2%e%p3%;%d").toInts(0, 2, 3)));
+    }
+
+    @Test
+    public void testConcurrentExpansion() throws Exception {
+        Curses.Template template = Curses.compile("%p1%PA%p2%Pb%gA%gb%+%d");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int offset = i;
+                tasks.add(() -> {
+                    for (int j = 0; j < 10000; j++) {
+                        String expected = Integer.toString(offset + 2 * j);
+                        if (!expected.equals(toString(template.toInts(offset + j, j))))
+                            return false;
+                    }
+                    return true;
+                });
+            }
+            for (Future<Boolean> result : executor.invokeAll(tasks))
+                assertTrue(result.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String toString(int[] codePoints) {
+        return new String(codePoints, 0, codePoints.length);
+    }
+
     private String tputs(String cap, Object... params) throws Exception {
         StringWriter sw = new StringWriter();
         Curses.tputs(sw, cap, params);
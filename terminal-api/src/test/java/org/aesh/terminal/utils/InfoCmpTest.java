@@ -28,7 +28,11 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -90,4 +94,42 @@ public class InfoCmpTest {
         }
     }
 
+    @Test
+    public void testTermInfo() throws InterruptedException {
+        TermInfo xterm = TermInfo.forType("xterm");
+        assertSame(xterm, TermInfo.forType("xterm-color"));
+        assertEquals(24, xterm.getNumericCapability(Capability.lines).intValue());
+        assertEquals(5, xterm.getNumericCapabilities().size());
+        assertEquals(8, xterm.getBooleanCapabilities().size());
+        assertEquals(166, xterm.getStringCapabilities().size());
+        assertArrayEquals(new int[]{27,91,72}, xterm.getStringCapabilityAsInts(Capability.cursor_home));
+        assertArrayEquals(new int[]{13}, xterm.getStringCapabilityAsInts(Capability.carriage_return));
+        assertEquals(null, xterm.getStringCapabilityAsInts(Capability.key_a1));
+
+        TermInfo[] infos = new TermInfo[8];
+        Thread[] threads = new Thread[infos.length];
+        for(int i = 0; i < threads.length; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> infos[index] = TermInfo.forType("vt100"));
+            threads[i].start();
+        }
+        for(Thread thread : threads)
+            thread.join();
+        for(TermInfo info : infos)
+            assertSame(infos[0], info);
+    }
+
+    @Test
+    public void testTemplates() {
+        TermInfo xterm = TermInfo.forType("xterm");
+        assertArrayEquals("\u001B[3;5H".codePoints().toArray(),
+                xterm.getTemplate(Capability.cursor_address).toInts(2, 4));
+        assertArrayEquals("\u001B[32m".codePoints().toArray(),
+                xterm.getTemplate(Capability.set_a_foreground).toInts(2));
+        //u6 is the format of the cursor position report, it can not be expanded
+        assertNotNull(xterm.getStringCapability(Capability.user6));
+        assertNull(xterm.getTemplate(Capability.user6));
+        assertNull(xterm.getTemplate(Capability.key_a1));
+    }
+
 }
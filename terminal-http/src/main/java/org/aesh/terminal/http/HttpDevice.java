@@ -21,12 +21,8 @@ package org.aesh.terminal.http;
 
 import org.aesh.terminal.BaseDevice;
 import org.aesh.terminal.tty.Capability;
-import org.aesh.terminal.utils.InfoCmp;
-
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import org.aesh.terminal.utils.Curses;
+import org.aesh.terminal.utils.TermInfo;
 
 /**
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
@@ -34,17 +30,11 @@ import java.util.Set;
 public class HttpDevice extends BaseDevice {
 
     private final String type;
-    private final Set<Capability> bools;
-    private final Map<Capability, Integer> ints;
-    private final Map<Capability, String> strings;
+    private final TermInfo termInfo;
 
     public HttpDevice(String type) {
         this.type = type;
-        bools = new HashSet<>();
-        ints = new HashMap<>();
-        strings = new HashMap<>();
-        String data = InfoCmp.getDefaultInfoCmp(type);
-        InfoCmp.parseInfoCmp(data, bools, ints, strings);
+        termInfo = TermInfo.forType(type);
     }
 
     @Override
@@ -54,16 +44,27 @@ public class HttpDevice extends BaseDevice {
 
     @Override
     public boolean getBooleanCapability(Capability capability) {
-        return bools.contains(capability);
+        return termInfo.getBooleanCapability(capability);
     }
 
     @Override
     public Integer getNumericCapability(Capability capability) {
-        return ints.get(capability);
+        return termInfo.getNumericCapability(capability);
     }
 
     @Override
     public String getStringCapability(Capability capability) {
-        return strings.get(capability);
+        return termInfo.getStringCapability(capability);
+    }
+
+    @Override
+    protected int[] getCompiledCapability(Capability capability) {
+        return termInfo.getStringCapabilityAsInts(capability);
+    }
+
+    @Override
+    protected Curses.Template getTemplate(Capability capability) {
+        Curses.Template template = termInfo.getTemplate(capability);
+        return template != null ? template : super.getTemplate(capability);
     }
 }
@@ -19,7 +19,9 @@
  */
 package org.aesh.terminal.http;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.aesh.terminal.io.Decoder;
 import org.aesh.terminal.io.Encoder;
 import org.aesh.terminal.Attributes;
@@ -34,7 +36,6 @@ import org.aesh.terminal.tty.TtyOutputMode;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
 import java.util.function.Consumer;
 
 /**
@@ -56,12 +57,26 @@ import java.util.function.Consumer;
  *   "rows: 50
  * }
  *
+ * Clients that negotiate the {@link #BINARY_SUBPROTOCOL} sub-protocol can also send binary
+ * messages, the first byte is the message type:
+ *
+ * {@link #BINARY_READ} followed by what the user typed, encoded in the connection charset
+ *
+ * {@link #BINARY_RESIZE} followed by cols and rows as unsigned 16 bit big endian integers
+ *
+ * and get the output as binary messages with the raw encoded bytes.
+ *
  * @author <a href="mailto:julien@julienviet.com">Julien Viet</a>
  * @author <a href="mailto:matejonnet@gmail.com">Matej Lazar</a>
  */
 public abstract class HttpTtyConnection implements Connection {
 
     public static final Size DEFAULT_SIZE = new Size(80, 24);
+    public static final String BINARY_SUBPROTOCOL = "aesh.binary";
+    public static final byte BINARY_READ = 0;
+    public static final byte BINARY_RESIZE = 1;
+    //thread safe, shared by all connections
+    private static final JsonFactory JSON = new JsonFactory();
     private final Device device;
 
     private Charset charset;
@@ -111,14 +126,37 @@ public abstract class HttpTtyConnection implements Connection {
 
     protected abstract void write(byte[] buffer);
 
-    @SuppressWarnings("unchecked")
     public void writeToDecoder(String msg) {
-        ObjectMapper mapper = new ObjectMapper();
-        Map<String, Object> obj;
-        String action;
-        try {
-            obj = mapper.readValue(msg, Map.class);
-            action = (String) obj.get("action");
+        String action = null;
+        String data = null;
+        int cols = size.getWidth();
+        int rows = size.getHeight();
+        try (JsonParser parser = JSON.createParser(msg)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "action":
+                        action = token == JsonToken.VALUE_STRING ? parser.getText() : null;
+                        break;
+                    case "data":
+                        data = token == JsonToken.VALUE_STRING ? parser.getText() : null;
+                        break;
+                    case "cols":
+                        cols = token == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : -1;
+                        break;
+                    case "rows":
+                        rows = token == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : -1;
+                        break;
+                    default:
+                        break;
+                }
+                //skip object and array values, of unknown fields and of known fields with the wrong type
+                parser.skipChildren();
+            }
         } catch (IOException e) {
             // Log this
             return;
@@ -127,31 +165,58 @@ public abstract class HttpTtyConnection implements Connection {
             switch (action) {
                 case "read":
                     lastAccessedTime = System.currentTimeMillis();
-                    String data = (String) obj.get("data");
-                    decoder.write(data.getBytes()); //write back echo
+                    if (data != null) {
+                        decoder.write(data.getBytes(charset)); //write back echo
+                    }
                     break;
                 case "resize":
-                    try {
-                        int cols = (int) obj.getOrDefault("cols", size.getWidth());
-                        int rows = (int) obj.getOrDefault("rows", size.getHeight());
-                        if (cols > 0 && rows > 0) {
-                            Size newSize = new Size(cols, rows);
-                            if (!newSize.equals(size())) {
-                                size = newSize;
-                                if (sizeHandler != null) {
-                                    sizeHandler.accept(size);
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        // Invalid size
-                        // Log this
-                    }
+                    resize(cols, rows);
                     break;
             }
         }
     }
 
+    /**
+     * Handle a message from the binary sub-protocol.
+     *
+     * @param msg message
+     * @param offset start of the message
+     * @param length length of the message
+     */
+    public void writeBinaryToDecoder(byte[] msg, int offset, int length) {
+        if (length < 1) {
+            return;
+        }
+        switch (msg[offset]) {
+            case BINARY_READ:
+                lastAccessedTime = System.currentTimeMillis();
+                decoder.write(msg, offset + 1, length - 1);
+                break;
+            case BINARY_RESIZE:
+                if (length >= 5) {
+                    resize(((msg[offset + 1] & 0xFF) << 8) | (msg[offset + 2] & 0xFF),
+                            ((msg[offset + 3] & 0xFF) << 8) | (msg[offset + 4] & 0xFF));
+                }
+                break;
+            default:
+                // Unknown message, log this
+                break;
+        }
+    }
+
+    private void resize(int cols, int rows) {
+        if (cols > 0 && rows > 0) {
+            Size newSize = new Size(cols, rows);
+            if (!newSize.equals(size())) {
+                size = newSize;
+                if (sizeHandler != null) {
+                    sizeHandler.accept(size);
+                }
+            }
+        }
+        // else invalid size, log this
+    }
+
     public Consumer<String> getTerminalTypeHandler() {
         return termHandler;
     }
@@ -47,6 +47,9 @@ public class NettyWebsocketTtyBootstrap {
   private final ChannelGroup channelGroup = new DefaultChannelGroup(ImmediateEventExecutor.INSTANCE);
   private String host;
   private int port;
+  private boolean compression;
+  private int compressionLevel = 6;
+  private int compressionThreshold = 256;
   private EventLoopGroup group;
   private Channel channel;
 
@@ -73,6 +76,45 @@ public class NettyWebsocketTtyBootstrap {
     return this;
   }
 
+  public boolean isCompression() {
+    return compression;
+  }
+
+  /**
+   * Offer permessage-deflate compression to clients, off by default.
+   */
+  public NettyWebsocketTtyBootstrap setCompression(boolean compression) {
+    this.compression = compression;
+    return this;
+  }
+
+  public int getCompressionLevel() {
+    return compressionLevel;
+  }
+
+  /**
+   * @param compressionLevel deflate level, 0 (none) to 9 (best), default 6
+   */
+  public NettyWebsocketTtyBootstrap setCompressionLevel(int compressionLevel) {
+    if (compressionLevel < 0 || compressionLevel > 9) {
+      throw new IllegalArgumentException("compressionLevel: " + compressionLevel + " (expected: 0-9)");
+    }
+    this.compressionLevel = compressionLevel;
+    return this;
+  }
+
+  public int getCompressionThreshold() {
+    return compressionThreshold;
+  }
+
+  /**
+   * @param compressionThreshold messages smaller than this many bytes are sent uncompressed, default 256
+   */
+  public NettyWebsocketTtyBootstrap setCompressionThreshold(int compressionThreshold) {
+    this.compressionThreshold = compressionThreshold;
+    return this;
+  }
+
   public void start(Consumer<Connection> handler, Consumer<Throwable> doneHandler) {
     group = new NioEventLoopGroup();
 
@@ -80,7 +122,8 @@ public class NettyWebsocketTtyBootstrap {
     b.group(group)
         .channel(NioServerSocketChannel.class)
         .handler(new LoggingHandler(LogLevel.INFO))
-        .childHandler(new TtyServerInitializer(channelGroup, handler));
+        .childHandler(new TtyServerInitializer(channelGroup, handler,
+            compression, compressionLevel, compressionThreshold));
 
     ChannelFuture f = b.bind(host, port);
     f.addListener(abc -> {
@@ -0,0 +1,130 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.terminal.http.netty;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionDecoder;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionEncoder;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandshaker;
+
+import java.util.List;
+
+/**
+ * Wraps a compression extension handshaker so messages smaller than the threshold
+ * are sent uncompressed, deflating a short echo or cursor movement only adds overhead.
+ * permessage-deflate allows uncompressed messages (RSV1 not set) at any time.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class ThresholdDeflateExtensionHandshaker implements WebSocketServerExtensionHandshaker {
+
+  private final WebSocketServerExtensionHandshaker handshaker;
+  private final int threshold;
+
+  ThresholdDeflateExtensionHandshaker(WebSocketServerExtensionHandshaker handshaker, int threshold) {
+    this.handshaker = handshaker;
+    this.threshold = threshold;
+  }
+
+  @Override
+  public WebSocketServerExtension handshakeExtension(WebSocketExtensionData extensionData) {
+    WebSocketServerExtension extension = handshaker.handshakeExtension(extensionData);
+    return extension == null ? null : new ThresholdExtension(extension, threshold);
+  }
+
+  private static class ThresholdExtension implements WebSocketServerExtension {
+
+    private final WebSocketServerExtension extension;
+    private final int threshold;
+
+    ThresholdExtension(WebSocketServerExtension extension, int threshold) {
+      this.extension = extension;
+      this.threshold = threshold;
+    }
+
+    @Override
+    public int rsv() {
+      return extension.rsv();
+    }
+
+    @Override
+    public WebSocketExtensionEncoder newExtensionEncoder() {
+      return new ThresholdEncoder(extension.newExtensionEncoder(), threshold);
+    }
+
+    @Override
+    public WebSocketExtensionDecoder newExtensionDecoder() {
+      return extension.newExtensionDecoder();
+    }
+
+    @Override
+    public WebSocketExtensionData newReponseData() {
+      return extension.newReponseData();
+    }
+  }
+
+  static class ThresholdEncoder extends WebSocketExtensionEncoder {
+
+    private final WebSocketExtensionEncoder encoder;
+    private final int threshold;
+    //if the current, possibly fragmented, message is compressed
+    private boolean compressing;
+
+    ThresholdEncoder(WebSocketExtensionEncoder encoder, int threshold) {
+      this.encoder = encoder;
+      this.threshold = threshold;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+      if (msg instanceof TextWebSocketFrame || msg instanceof BinaryWebSocketFrame) {
+        WebSocketFrame frame = (WebSocketFrame) msg;
+        compressing = !frame.isFinalFragment() || frame.content().readableBytes() >= threshold;
+      } else if (!(msg instanceof ContinuationWebSocketFrame)) {
+        ctx.write(msg, promise);
+        return;
+      }
+      if (compressing) {
+        encoder.write(ctx, msg, promise);
+      } else {
+        ctx.write(msg, promise);
+      }
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, WebSocketFrame msg, List<Object> out) throws Exception {
+      //all frames are handled in write
+      out.add(msg.retain());
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+      encoder.handlerRemoved(ctx);
+      super.handlerRemoved(ctx);
+    }
+  }
+}
@@ -45,8 +45,11 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
 import io.netty.handler.stream.ChunkedWriteHandler;
 import org.aesh.terminal.Connection;
+import org.aesh.terminal.http.HttpTtyConnection;
 
 import java.util.function.Consumer;
 
@@ -57,10 +60,26 @@ public class TtyServerInitializer extends ChannelInitializer<SocketChannel> {
 
   private final ChannelGroup group;
   private final Consumer<Connection> handler;
+  private final boolean compression;
+  private final int compressionLevel;
+  private final int compressionThreshold;
 
   public TtyServerInitializer(ChannelGroup group, Consumer<Connection> handler) {
+    this(group, handler, false, 6, 0);
+  }
+
+  /**
+   * @param compression if permessage-deflate should be offered to clients
+   * @param compressionLevel deflate level, 0-9
+   * @param compressionThreshold messages smaller than this are sent uncompressed
+   */
+  public TtyServerInitializer(ChannelGroup group, Consumer<Connection> handler,
+                              boolean compression, int compressionLevel, int compressionThreshold) {
     this.group = group;
     this.handler = handler;
+    this.compression = compression;
+    this.compressionLevel = compressionLevel;
+    this.compressionThreshold = compressionThreshold;
   }
 
   @Override
@@ -69,8 +88,13 @@ public class TtyServerInitializer extends ChannelInitializer<SocketChannel> {
     pipeline.addLast(new HttpServerCodec());
     pipeline.addLast(new ChunkedWriteHandler());
     pipeline.addLast(new HttpObjectAggregator(64 * 1024));
+    if (compression) {
+      pipeline.addLast(new WebSocketServerExtensionHandler(new ThresholdDeflateExtensionHandshaker(
+          new PerMessageDeflateServerExtensionHandshaker(compressionLevel, false, 15, false, false),
+          compressionThreshold)));
+    }
     pipeline.addLast(new HttpRequestHandler("/ws"));
-    pipeline.addLast(new WebSocketServerProtocolHandler("/ws"));
+    pipeline.addLast(new WebSocketServerProtocolHandler("/ws", HttpTtyConnection.BINARY_SUBPROTOCOL, compression));
     pipeline.addLast(new TtyWebSocketFrameHandler(group, handler));
   }
 }
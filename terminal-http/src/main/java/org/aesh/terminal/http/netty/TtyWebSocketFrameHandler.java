@@ -20,11 +20,13 @@
 package org.aesh.terminal.http.netty;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.group.ChannelGroup;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
 import org.aesh.terminal.Connection;
 import org.aesh.terminal.http.HttpTtyConnection;
@@ -33,14 +35,30 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
+ * Output is batched, everything written before the event loop gets to run the
+ * flush task is sent as one frame. A frame is sent right away when the batch
+ * reaches {@link #MAX_BATCH_SIZE} bytes. Writes are moved to the event loop
+ * before they are batched, so frames are sent in the order they are written.
+ *
  * @author <a href="mailto:julien@julienviet.com">Julien Viet</a>
  */
-public class TtyWebSocketFrameHandler extends SimpleChannelInboundHandler<TextWebSocketFrame> {
+public class TtyWebSocketFrameHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
+
+  static final int MAX_BATCH_SIZE = 16 * 1024;
 
   private final ChannelGroup group;
   private final Consumer<Connection> handler;
   private ChannelHandlerContext context;
   private HttpTtyConnection conn;
+  private boolean binary;
+
+  //only used from the event loop
+  private ByteBuf pending;
+  private boolean flushScheduled;
+  private final Runnable flushTask = () -> {
+    flushScheduled = false;
+    flushPending();
+  };
 
   public TtyWebSocketFrameHandler(ChannelGroup group, Consumer<Connection> handler) {
     this.group = group;
@@ -55,34 +73,55 @@ public class TtyWebSocketFrameHandler extends SimpleChannelInboundHandler<TextWe
 
   @Override
   public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
-    if (evt == WebSocketServerProtocolHandler.ServerHandshakeStateEvent.HANDSHAKE_COMPLETE) {
-      ctx.pipeline().remove(HttpRequestHandler.class);
-      group.add(ctx.channel());
-      conn = new HttpTtyConnection() {
-        @Override
-        protected void write(byte[] buffer) {
-          ByteBuf byteBuf = Unpooled.buffer();
-          byteBuf.writeBytes(buffer);
-          context.writeAndFlush(new TextWebSocketFrame(byteBuf));
-        }
+    if (evt instanceof WebSocketServerProtocolHandler.HandshakeComplete) {
+      open(ctx, ((WebSocketServerProtocolHandler.HandshakeComplete) evt).selectedSubprotocol());
+    } else {
+      super.userEventTriggered(ctx, evt);
+    }
+  }
 
-        public void schedule(Runnable task, long delay, TimeUnit unit) {
-          context.executor().schedule(task, delay, unit);
+  /**
+   * Creates the connection once the handshake is complete.
+   *
+   * @param ctx the handler context
+   * @param subprotocol the negotiated sub-protocol, or null
+   */
+  void open(ChannelHandlerContext ctx, String subprotocol) {
+    binary = HttpTtyConnection.BINARY_SUBPROTOCOL.equals(subprotocol);
+    ctx.pipeline().remove(HttpRequestHandler.class);
+    group.add(ctx.channel());
+    conn = new HttpTtyConnection() {
+      @Override
+      protected void write(byte[] buffer) {
+        if (ctx.executor().inEventLoop()) {
+          batch(ctx, buffer);
+        } else {
+          ctx.executor().execute(() -> batch(ctx, buffer));
         }
+      }
 
-        public void execute(Runnable task) {
-          context.executor().execute(task);
-        }
+      public void schedule(Runnable task, long delay, TimeUnit unit) {
+        ctx.executor().schedule(task, delay, unit);
+      }
 
-        @Override
-        public void close() {
-          context.close();
+      public void execute(Runnable task) {
+        ctx.executor().execute(task);
+      }
+
+      @Override
+      public void close() {
+        if (ctx.executor().inEventLoop()) {
+          flushPending();
+          ctx.close();
+        } else {
+          ctx.executor().execute(() -> {
+            flushPending();
+            ctx.close();
+          });
         }
-      };
-      handler.accept(conn);
-    } else {
-      super.userEventTriggered(ctx, evt);
-    }
+      }
+    };
+    handler.accept(conn);
   }
 
   @Override
@@ -90,6 +129,10 @@ public class TtyWebSocketFrameHandler extends SimpleChannelInboundHandler<TextWe
     HttpTtyConnection tmp = conn;
     context = null;
     conn = null;
+    if (pending != null) {
+      pending.release();
+      pending = null;
+    }
     if (tmp != null) {
       Consumer<Void> closeHandler = tmp.getCloseHandler();
       if (closeHandler != null) {
@@ -98,7 +141,50 @@ public class TtyWebSocketFrameHandler extends SimpleChannelInboundHandler<TextWe
     }
   }
 
-  public void channelRead0(ChannelHandlerContext ctx, TextWebSocketFrame msg) throws Exception {
-    conn.writeToDecoder(msg.text());
+  public void channelRead0(ChannelHandlerContext ctx, WebSocketFrame msg) throws Exception {
+    if (msg instanceof TextWebSocketFrame) {
+      conn.writeToDecoder(((TextWebSocketFrame) msg).text());
+    } else if (msg instanceof BinaryWebSocketFrame) {
+      ByteBuf content = msg.content();
+      if (content.hasArray()) {
+        conn.writeBinaryToDecoder(content.array(), content.arrayOffset() + content.readerIndex(),
+            content.readableBytes());
+      } else {
+        byte[] bytes = ByteBufUtil.getBytes(content);
+        conn.writeBinaryToDecoder(bytes, 0, bytes.length);
+      }
+    }
+  }
+
+  /**
+   * Must be called from the event loop.
+   */
+  private void batch(ChannelHandlerContext ctx, byte[] buffer) {
+    if (pending == null) {
+      if (!ctx.channel().isActive()) {
+        return;
+      }
+      pending = ctx.alloc().buffer(Math.max(buffer.length, 256));
+    }
+    pending.writeBytes(buffer);
+    if (pending.readableBytes() >= MAX_BATCH_SIZE) {
+      flushPending();
+    } else if (!flushScheduled) {
+      flushScheduled = true;
+      ctx.executor().execute(flushTask);
+    }
+  }
+
+  /**
+   * Must be called from the event loop.
+   */
+  private void flushPending() {
+    ChannelHandlerContext ctx = context;
+    if (pending == null || ctx == null) {
+      return;
+    }
+    ByteBuf frame = pending;
+    pending = null;
+    ctx.writeAndFlush(binary ? new BinaryWebSocketFrame(frame) : new TextWebSocketFrame(frame));
   }
 }
@@ -0,0 +1,182 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2017 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.terminal.http;
+
+import org.aesh.terminal.tty.Size;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class HttpTtyConnectionTest {
+
+    @Test
+    public void testRead() {
+        TestConnection conn = new TestConnection(StandardCharsets.UTF_8);
+        conn.writeToDecoder("{\"action\":\"read\",\"data\":\"ls\"}");
+        assertEquals("ls", conn.input());
+    }
+
+    @Test
+    public void testReadCharset() {
+        TestConnection conn = new TestConnection(StandardCharsets.UTF_8);
+        conn.writeToDecoder("{\"action\":\"read\",\"data\":\"æøå €\"}");
+        assertEquals("æøå €", conn.input());
+
+        conn = new TestConnection(StandardCharsets.ISO_8859_1);
+        conn.writeToDecoder("{\"action\":\"read\",\"data\":\"æøå\"}");
+        assertEquals("æøå", conn.input());
+    }
+
+    @Test
+    public void testReadWithoutData() {
+        TestConnection conn = new TestConnection(StandardCharsets.UTF_8);
+        conn.writeToDecoder("{\"action\":\"read\"}");
+        conn.writeToDecoder("{\"action\":\"read\",\"data\":null}");
+        conn.writeToDecoder("{\"action\":\"read\",\"data\":42}");
+        assertEquals("", conn.input());
+    }
+
+    @Test
+    public void testUnknownFields() {
+        TestConnection conn = new TestConnection(StandardCharsets.UTF_8);
+        conn.writeToDecoder("{\"id\":{\"a\":[1,{\"data\":\"x\"}]},\"action\":\"read\"," +
+                "\"extra\":[\"y\"],\"data\":\"ls\",\"more\":true}");
+        assertEquals("ls", conn.input());
+
+        conn.writeToDecoder("{\"cols\":{\"rows\":1},\"action\":\"resize\",\"cols\":100,\"rows\":40,\"x\":[]}");
+        assertEquals(1, conn.sizes.size());
+        assertEquals(new Size(100, 40), conn.size());
+    }
+
+    @Test
+    public void testResize() {
+        TestConnection conn = new TestConnection(StandardCharsets.UTF_8);
+        conn.writeToDecoder("{\"action\":\"resize\",\"cols\":100,\"rows\":40}");
+        assertEquals(new Size(100, 40), conn.size());
+        assertEquals(1, conn.sizes.size());
+        //same size does not call the handler again
+        conn.writeToDecoder("{\"action\":\"resize\",\"cols\":100,\"rows\":40}");
+        assertEquals(1, conn.sizes.size());
+    }
+
+    @Test
+    public void testInvalidResize() {
+        TestConnection conn = new TestConnection(StandardCharsets.UTF_8);
+        conn.writeToDecoder("{\"action\":\"resize\",\"cols\":\"100\",\"rows\":40}");
+        conn.writeToDecoder("{\"action\":\"resize\",\"cols\":100,\"rows\":40.5}");
+        conn.writeToDecoder("{\"action\":\"resize\",\"cols\":null,\"rows\":40}");
+        conn.writeToDecoder("{\"action\":\"resize\",\"cols\":0,\"rows\":40}");
+        assertTrue(conn.sizes.isEmpty());
+        assertEquals(HttpTtyConnection.DEFAULT_SIZE, conn.size());
+    }
+
+    @Test
+    public void testInvalidMessage() {
+        TestConnection conn = new TestConnection(StandardCharsets.UTF_8);
+        conn.writeToDecoder("[\"read\"]");
+        conn.writeToDecoder("{\"action\":\"read\",\"data\":");
+        conn.writeToDecoder("{\"action\":\"unknown\",\"data\":\"ls\"}");
+        conn.writeToDecoder("");
+        assertEquals("", conn.input());
+        assertTrue(conn.sizes.isEmpty());
+    }
+
+    @Test
+    public void testBinaryRead() {
+        TestConnection conn = new TestConnection(StandardCharsets.UTF_8);
+        byte[] data = "xæøå €".getBytes(StandardCharsets.UTF_8);
+        data[0] = HttpTtyConnection.BINARY_READ;
+        conn.writeBinaryToDecoder(data, 0, data.length);
+        assertEquals("æøå €", conn.input());
+
+        byte[] msg = {'x', 'y', HttpTtyConnection.BINARY_READ, 'l', 's', 'z'};
+        conn.writeBinaryToDecoder(msg, 2, 3);
+        assertEquals("æøå €ls", conn.input());
+    }
+
+    @Test
+    public void testBinaryResize() {
+        TestConnection conn = new TestConnection(StandardCharsets.UTF_8);
+        byte[] msg = {'x', HttpTtyConnection.BINARY_RESIZE, 0x01, 0x2C, 0x00, 0x28};
+        conn.writeBinaryToDecoder(msg, 1, 5);
+        assertEquals(new Size(300, 40), conn.size());
+        assertEquals(1, conn.sizes.size());
+    }
+
+    @Test
+    public void testBinaryTooShort() {
+        TestConnection conn = new TestConnection(StandardCharsets.UTF_8);
+        byte[] msg = {HttpTtyConnection.BINARY_RESIZE, 0x00, 0x64, 0x00, 0x28};
+        conn.writeBinaryToDecoder(msg, 0, 4);
+        conn.writeBinaryToDecoder(msg, 0, 0);
+        conn.writeBinaryToDecoder(new byte[]{HttpTtyConnection.BINARY_READ}, 0, 1);
+        assertTrue(conn.sizes.isEmpty());
+        assertEquals(HttpTtyConnection.DEFAULT_SIZE, conn.size());
+        assertEquals("", conn.input());
+    }
+
+    @Test
+    public void testBinaryUnknownType() {
+        TestConnection conn = new TestConnection(StandardCharsets.UTF_8);
+        byte[] msg = {2, 0x00, 0x64, 0x00, 0x28};
+        conn.writeBinaryToDecoder(msg, 0, msg.length);
+        msg[0] = -1;
+        conn.writeBinaryToDecoder(msg, 0, msg.length);
+        assertTrue(conn.sizes.isEmpty());
+        assertEquals("", conn.input());
+    }
+
+    static class TestConnection extends HttpTtyConnection {
+
+        final StringBuilder input = new StringBuilder();
+        final List<Size> sizes = new ArrayList<>();
+
+        TestConnection(Charset charset) {
+            super(charset, DEFAULT_SIZE);
+            setStdinHandler(codePoints -> {
+                for (int cp : codePoints) {
+                    input.appendCodePoint(cp);
+                }
+            });
+            setSizeHandler(sizes::add);
+        }
+
+        String input() {
+            return input.toString();
+        }
+
+        @Override
+        protected void write(byte[] buffer) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.terminal.http.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocket13FrameEncoder;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtension;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Bytes on the wire for a simulated terminal session, without compression and
+ * with permessage-deflate at different levels and thresholds.
+ * Run the main method with the test classpath of terminal-http.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class CompressionBenchmark {
+
+  private static final String PROMPT = "\u001B[1;32mstale@host\u001B[0m:\u001B[1;34m~/project\u001B[0m$ ";
+
+  public static void main(String[] args) {
+    List<byte[]> session = session();
+    long raw = 0;
+    for (byte[] message : session) {
+      raw += message.length;
+    }
+    System.out.println("messages: " + session.size() + ", payload: " + raw + " bytes");
+    System.out.println(String.format("%-24s %10s %8s", "configuration", "wire", "ratio"));
+    long plain = wireBytes(session, null);
+    print("no compression", plain, plain);
+    for (int level : new int[]{1, 6, 9}) {
+      for (int threshold : new int[]{0, 64, 256, 1024}) {
+        print("level " + level + ", threshold " + threshold,
+            wireBytes(session, encoder(level, threshold)), plain);
+      }
+    }
+  }
+
+  private static void print(String name, long bytes, long plain) {
+    System.out.println(String.format("%-24s %10d %7.1f%%", name, bytes, 100d * bytes / plain));
+  }
+
+  private static ChannelHandler encoder(int level, int threshold) {
+    WebSocketServerExtension extension = new ThresholdDeflateExtensionHandshaker(
+        new PerMessageDeflateServerExtensionHandshaker(level, false, 15, false, false), threshold)
+        .handshakeExtension(new WebSocketExtensionData("permessage-deflate", Collections.emptyMap()));
+    return extension.newExtensionEncoder();
+  }
+
+  private static long wireBytes(List<byte[]> session, ChannelHandler compression) {
+    EmbeddedChannel channel = compression == null ?
+        new EmbeddedChannel(new WebSocket13FrameEncoder(false)) :
+        new EmbeddedChannel(new WebSocket13FrameEncoder(false), compression);
+    long bytes = 0;
+    for (byte[] message : session) {
+      channel.writeOutbound(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(message)));
+      ByteBuf buf;
+      while ((buf = channel.readOutbound()) != null) {
+        bytes += buf.readableBytes();
+        buf.release();
+      }
+    }
+    channel.finishAndReleaseAll();
+    return bytes;
+  }
+
+  /**
+   * Echo of typed commands, directory listings, a tailed log and full screen redraws.
+   */
+  private static List<byte[]> session() {
+    Random random = new Random(42);
+    List<String> messages = new ArrayList<>();
+    String[] levels = {"INFO ", "DEBUG", "WARN ", "INFO ", "INFO "};
+    String[] loggers = {"org.aesh.readline.Readline", "org.aesh.terminal.http.HttpTtyConnection",
+        "io.netty.channel.DefaultChannelPipeline", "org.example.service.OrderService"};
+    for (int round = 0; round < 50; round++) {
+      messages.add(PROMPT);
+      String command = round % 3 == 0 ? "ls -la" : round % 3 == 1 ? "tail -n 40 server.log" : "top -n 1";
+      //every typed character is echoed in its own message
+      for (char c : command.toCharArray()) {
+        messages.add(String.valueOf(c));
+      }
+      messages.add("\r\n");
+      StringBuilder out = new StringBuilder();
+      for (int line = 0; line < 40; line++) {
+        if (round % 3 == 0) {
+          out.append(String.format("-rw-r--r--  1 stale staff %8d Oct %2d 12:%02d \u001B[0;3%dmfile%04d.txt\u001B[0m\r\n",
+              random.nextInt(1 << 20), 1 + random.nextInt(28), random.nextInt(60), 1 + random.nextInt(6), random.nextInt(10000)));
+        } else if (round % 3 == 1) {
+          out.append(String.format("2026-10-17 12:%02d:%02d,%03d %s [%s] request %d handled in %d ms\r\n",
+              random.nextInt(60), random.nextInt(60), random.nextInt(1000), levels[random.nextInt(levels.length)],
+              loggers[random.nextInt(loggers.length)], random.nextInt(100000), random.nextInt(500)));
+        } else {
+          out.append(String.format("\u001B[%d;1H%5d stale     20   0 %7dk %6dk %5.1f %4.1f java\u001B[K",
+              line + 1, random.nextInt(30000), random.nextInt(9000000), random.nextInt(900000),
+              random.nextDouble() * 100, random.nextDouble() * 10));
+        }
+        //output arrives in batches of a few lines
+        if (line % 8 == 7) {
+          messages.add(out.toString());
+          out.setLength(0);
+        }
+      }
+    }
+    List<byte[]> session = new ArrayList<>(messages.size());
+    for (String message : messages) {
+      session.add(message.getBytes(StandardCharsets.UTF_8));
+    }
+    return session;
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2017 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.aesh.terminal.http.netty;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import org.aesh.terminal.http.HttpTtyConnection;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class TtyWebSocketFrameHandlerTest {
+
+  private EmbeddedChannel channel;
+  private HttpTtyConnection conn;
+
+  private void open(String subprotocol) {
+    TtyWebSocketFrameHandler handler = new TtyWebSocketFrameHandler(
+        new DefaultChannelGroup(ImmediateEventExecutor.INSTANCE), c -> conn = (HttpTtyConnection) c);
+    channel = new EmbeddedChannel(new HttpRequestHandler("/ws"), handler);
+    handler.open(channel.pipeline().context(handler), subprotocol);
+  }
+
+  @After
+  public void close() {
+    if (channel != null) {
+      channel.finishAndReleaseAll();
+    }
+  }
+
+  @Test
+  public void testBatch() {
+    open(HttpTtyConnection.BINARY_SUBPROTOCOL);
+    write("foo");
+    write("bar");
+    write("baz");
+    assertNull(channel.readOutbound());
+    channel.runPendingTasks();
+    assertEquals("foobarbaz", readFrame(BinaryWebSocketFrame.class));
+    assertNull(channel.readOutbound());
+  }
+
+  @Test
+  public void testTextFrames() {
+    open(null);
+    write("foo");
+    write("bar");
+    channel.runPendingTasks();
+    assertEquals("foobar", readFrame(TextWebSocketFrame.class));
+    assertNull(channel.readOutbound());
+  }
+
+  @Test
+  public void testMaxBatchSize() {
+    open(HttpTtyConnection.BINARY_SUBPROTOCOL);
+    String large = repeat('a', TtyWebSocketFrameHandler.MAX_BATCH_SIZE);
+    write(large);
+    //sent without waiting for the flush task
+    assertEquals(large, readFrame(BinaryWebSocketFrame.class));
+    channel.runPendingTasks();
+    assertNull(channel.readOutbound());
+  }
+
+  @Test
+  public void testOrder() {
+    open(HttpTtyConnection.BINARY_SUBPROTOCOL);
+    String large = repeat('b', TtyWebSocketFrameHandler.MAX_BATCH_SIZE);
+    write("a");
+    write(large);
+    write("c");
+    write("d");
+    channel.runPendingTasks();
+    assertEquals("a" + large, readFrame(BinaryWebSocketFrame.class));
+    assertEquals("cd", readFrame(BinaryWebSocketFrame.class));
+    assertNull(channel.readOutbound());
+  }
+
+  @Test
+  public void testCloseFlushes() {
+    open(HttpTtyConnection.BINARY_SUBPROTOCOL);
+    write("bye");
+    conn.close();
+    assertEquals("bye", readFrame(BinaryWebSocketFrame.class));
+    assertFalse(channel.isOpen());
+  }
+
+  private void write(String s) {
+    conn.stdoutHandler().accept(s.codePoints().toArray());
+  }
+
+  private String readFrame(Class<? extends WebSocketFrame> type) {
+    WebSocketFrame frame = channel.readOutbound();
+    try {
+      assertEquals(type, frame.getClass());
+      return frame.content().toString(StandardCharsets.UTF_8);
+    } finally {
+      frame.release();
+    }
+  }
+
+  private static String repeat(char c, int count) {
+    char[] chars = new char[count];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+}
@@ -19,6 +19,8 @@
  */
 package org.aesh.terminal.telnet;
 
+import org.aesh.terminal.io.Encoder;
+
 import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
@@ -105,9 +107,49 @@ public abstract class TelnetConnection {
 
   protected abstract void send(byte[] data);
 
+  /**
+   * Encode code points directly to the transport buffers.
+   *
+   * @param encoder the encoder
+   * @param input code points
+   * @param offset index of the first code point
+   * @param length number of code points
+   * @param ascii the data must only contain 7 bits bytes, otherwise it must not contain <code>IAC</code>
+   * @return false if nothing was sent, when the transport do not support it or the data needs to be
+   * escaped or truncated
+   */
+  protected boolean send(Encoder encoder, int[] input, int offset, int length, boolean ascii) {
+    return false;
+  }
+
   public void receive(byte[] data) {
-    for (byte b : data) {
-      status.handle(this, b);
+    receive(data, 0, data.length);
+  }
+
+  /**
+   * Receive data from the client. Runs of plain data are copied in bulk to the
+   * {@link #pendingBuffer} buffer, only the bytes around an <code>IAC</code> go through the state machine.
+   *
+   * @param data the data
+   * @param offset the offset of the first byte
+   * @param length the number of bytes
+   */
+  public void receive(byte[] data, int offset, int length) {
+    int index = offset;
+    int end = offset + length;
+    while (index < end) {
+      if (status == Status.DATA) {
+        int start = index;
+        while (index < end && data[index] != BYTE_IAC) {
+          index++;
+        }
+        appendData(data, start, index - start);
+        if (index < end) {
+          status.handle(this, data[index++]);
+        }
+      } else {
+        status.handle(this, data[index++]);
+      }
     }
     flushDataIfNecessary();
   }
@@ -138,6 +180,20 @@ public abstract class TelnetConnection {
     }
   }
 
+  /**
+   * Encode and write code points to the client without an intermediate byte array when the
+   * transport supports it.
+   *
+   * @param encoder the encoder
+   * @param input code points
+   * @param offset index of the first code point
+   * @param length number of code points
+   * @return false if nothing was written, the encoded data must then be written with {@link #write(byte[])}
+   */
+  public final boolean write(Encoder encoder, int[] input, int offset, int length) {
+    return send(encoder, input, offset, length, !sendBinary);
+  }
+
   protected void onClose() {
     handler.onClose();
   }
@@ -245,6 +301,27 @@ public abstract class TelnetConnection {
     pendingBuffer[pendingLength++] = b;
   }
 
+  /**
+   * Append bytes in the {@link #pendingBuffer} buffer, the buffer is flushed each time it is full.
+   *
+   * @param data the data
+   * @param offset the offset of the first byte
+   * @param length the number of bytes
+   * @see #flushData()
+   */
+  private void appendData(byte[] data, int offset, int length) {
+    while (length > 0) {
+      if (pendingLength >= pendingBuffer.length) {
+        flushData();
+      }
+      int chunk = Math.min(length, pendingBuffer.length - pendingLength);
+      System.arraycopy(data, offset, pendingBuffer, pendingLength, chunk);
+      pendingLength += chunk;
+      offset += chunk;
+      length -= chunk;
+    }
+  }
+
   /**
    * Flush the {@link #pendingBuffer} buffer when it is not empty.
    *
@@ -57,7 +57,14 @@ public final class TelnetTtyConnection extends TelnetHandler implements Connecti
   private final EventDecoder eventDecoder = new EventDecoder(3, 4, 26);
   private final ReadBuffer readBuffer = new ReadBuffer(this::execute);
   private final Decoder decoder = new Decoder(512, TelnetCharset.INSTANCE, readBuffer);
-  private final Encoder encoder = new Encoder(StandardCharsets.US_ASCII, data -> conn.write(data));
+  private final Encoder encoder = new Encoder(StandardCharsets.US_ASCII, data -> conn.write(data)) {
+    @Override
+    public void accept(int[] input, int offset, int length) {
+      if (!conn.write(this, input, offset, length)) {
+        super.accept(input, offset, length);
+      }
+    }
+  };
   private final Consumer<int[]> stdout = new TtyOutputMode(encoder);
   private final Consumer<Connection> handler;
   private long lastAccessedTime = System.currentTimeMillis();
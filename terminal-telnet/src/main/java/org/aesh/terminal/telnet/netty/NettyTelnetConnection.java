@@ -19,12 +19,16 @@
  */
 package org.aesh.terminal.telnet.netty;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.ByteProcessor;
+import org.aesh.terminal.io.Encoder;
 import org.aesh.terminal.telnet.TelnetConnection;
 import org.aesh.terminal.telnet.TelnetHandler;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -32,7 +36,18 @@ import java.util.concurrent.TimeUnit;
  */
 public class NettyTelnetConnection extends TelnetConnection {
 
+  private static final int READ_CHUNK_SIZE = 1024;
+  //room for any encoded code point
+  private static final int MIN_WRITABLE = 16;
+  private static final ByteProcessor FIND_NON_ASCII = value -> value >= 0;
+  private static final ByteProcessor FIND_IAC = value -> value != BYTE_IAC;
+
   final ChannelHandlerContext context;
+  private final Runnable flushTask = this::flush;
+  //only accessed from the event loop
+  private boolean flushPending;
+  //used to read direct buffers, only accessed from the event loop
+  private byte[] readBuffer;
 
   public NettyTelnetConnection(TelnetHandler handler, ChannelHandlerContext context) {
     super(handler);
@@ -49,10 +64,84 @@ public class NettyTelnetConnection extends TelnetConnection {
     context.channel().eventLoop().schedule(task, delay, unit);
   }
 
-  // Not properly synchronized, but ok for now
+  /**
+   * Receive data from the client without copying it when the buffer is backed by an array.
+   * The buffer is not released.
+   *
+   * @param buf the data
+   */
+  void receive(ByteBuf buf) {
+    int length = buf.readableBytes();
+    if (buf.hasArray()) {
+      receive(buf.array(), buf.arrayOffset() + buf.readerIndex(), length);
+    } else {
+      if (readBuffer == null) {
+        readBuffer = new byte[READ_CHUNK_SIZE];
+      }
+      int index = buf.readerIndex();
+      int end = index + length;
+      while (index < end) {
+        int chunk = Math.min(end - index, readBuffer.length);
+        buf.getBytes(index, readBuffer, 0, chunk);
+        receive(readBuffer, 0, chunk);
+        index += chunk;
+      }
+    }
+    buf.skipBytes(length);
+  }
+
+  /**
+   * The data is copied to a pooled buffer and written from the event loop,
+   * all the writes done in the same event loop tick share one flush.
+   */
   @Override
   protected void send(byte[] data) {
-    context.writeAndFlush(Unpooled.buffer().writeBytes(data));
+    ByteBuf buf = context.alloc().buffer(data.length).writeBytes(data);
+    if (context.executor().inEventLoop()) {
+      write(buf);
+    } else {
+      context.executor().execute(() -> write(buf));
+    }
+  }
+
+  /**
+   * The code points are encoded to a pooled buffer, the data is only copied
+   * when the buffer needs to grow.
+   */
+  @Override
+  protected boolean send(Encoder encoder, int[] input, int offset, int length, boolean ascii) {
+    ByteBuf buf = context.alloc().buffer(Math.max(length, MIN_WRITABLE));
+    int index = offset;
+    int end = offset + length;
+    while (index < end) {
+      buf.ensureWritable(Math.max(end - index, MIN_WRITABLE));
+      ByteBuffer dst = buf.nioBuffer(buf.writerIndex(), buf.writableBytes());
+      index += encoder.encode(input, index, end - index, dst);
+      buf.writerIndex(buf.writerIndex() + dst.position());
+    }
+    if (buf.forEachByte(ascii ? FIND_NON_ASCII : FIND_IAC) != -1) {
+      buf.release();
+      return false;
+    }
+    if (context.executor().inEventLoop()) {
+      write(buf);
+    } else {
+      context.executor().execute(() -> write(buf));
+    }
+    return true;
+  }
+
+  private void write(ByteBuf buf) {
+    context.write(buf, context.voidPromise());
+    if (!flushPending) {
+      flushPending = true;
+      context.executor().execute(flushTask);
+    }
+  }
+
+  private void flush() {
+    flushPending = false;
+    context.flush();
   }
 
   @Override
@@ -47,10 +47,11 @@ public class TelnetChannelHandler extends ChannelInboundHandlerAdapter {
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) {
     ByteBuf buf = (ByteBuf) msg;
-    int size = buf.readableBytes();
-    byte[] data = new byte[size];
-    buf.getBytes(0, data);
-    conn.receive(data);
+    try {
+      conn.receive(buf);
+    } finally {
+      buf.release();
+    }
   }
 
   @Override
@@ -21,11 +21,15 @@ package org.aesh.terminal.telnet.tty;
 
 import org.aesh.terminal.telnet.TelnetHandler;
 import org.aesh.terminal.telnet.TelnetServerRule;
+import org.junit.Test;
 
 import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import static org.junit.Assert.assertArrayEquals;
+
 /**
  * @author <a href="mailto:julien@julienviet.com">Julien Viet</a>
  */
@@ -45,4 +49,20 @@ public class NettyBinaryTelnetTtyTest extends TelnetTtyTestBase {
     assertTrue(connThread.getName().startsWith("nioEventLoopGroup"));
     assertTrue(schedulerThread.getName().startsWith("nioEventLoopGroup"));
   }
+
+  @Test
+  public void testWriteUnicode() throws Exception {
+    server(conn -> conn.write("\u00e6\u20ac"));
+    assertConnect();
+    assertEquals("\u00e6\u20ac", assertReadString(5));
+  }
+
+  @Test
+  public void testWriteIAC() throws Exception {
+    charset = StandardCharsets.ISO_8859_1;
+    // 0xFF is escaped as IAC IAC
+    server(conn -> conn.write("a\u00ffb"));
+    assertConnect();
+    assertArrayEquals(new byte[]{'a', (byte) 0xFF, 'b'}, client.assertReadBytes(3));
+  }
 }